@@ -0,0 +1,114 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+package com.bq.robotic.drag_drop_grid.benchmarks;
+
+import com.bq.robotic.drag_drop_grid.core.FlingScroller;
+import com.bq.robotic.drag_drop_grid.core.VelocityHistory;
+import com.bq.robotic.drag_drop_grid.core.WobbleClock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per frame math of the scroll: velocity of the finger, one step of the fling and of the
+ * overscroll spring, and the angle of the wobble while dragging
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class FlingBenchmark {
+
+    private static final float FRAME = 1 / 60f;
+
+    // Items of the grid, for the length of the content the fling can move over
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    private VelocityHistory velocityHistory = new VelocityHistory();
+    private FlingScroller flingScroller = new FlingScroller();
+    private WobbleClock wobbleClock = new WobbleClock();
+    private float maxScroll;
+    private long time = 0;
+
+
+    @Setup
+    public void setUp() {
+        maxScroll = (itemCount + 4) / 5 * 200f;
+
+        for (int i = 0; i < 20; i++) {
+            velocityHistory.add(i * 8, 2000 - i * 24);
+        }
+    }
+
+
+    @Benchmark
+    public float velocity() {
+        return velocityHistory.getVelocity();
+    }
+
+
+    @Benchmark
+    public float flingStep() {
+        if (flingScroller.isFinished()) {
+            flingScroller.fling(maxScroll / 2, 8000);
+        }
+
+        flingScroller.step(FRAME, 0, maxScroll);
+        return flingScroller.getPosition();
+    }
+
+
+    @Benchmark
+    public float springStep() {
+        if (flingScroller.isFinished()) {
+            flingScroller.fling(maxScroll + 300, 0);
+        }
+
+        flingScroller.step(FRAME, 0, maxScroll);
+        return flingScroller.getPosition();
+    }
+
+
+    @Benchmark
+    public float wobbleAngle() {
+        time += 16;
+        return wobbleClock.getAngle(time);
+    }
+
+
+    @Benchmark
+    public float fullFling() {
+        flingScroller.fling(0, 8000);
+        while (flingScroller.step(FRAME, 0, maxScroll)) {
+            // Run the whole fling at 60 frames per second
+        }
+        return flingScroller.getPosition();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+package com.bq.robotic.drag_drop_grid.benchmarks;
+
+import com.bq.robotic.drag_drop_grid.core.GridGeometry;
+import com.bq.robotic.drag_drop_grid.core.GridMath;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping between the positions of the items and the coordinates of the grid, as done by
+ * getCoorFromIndex, getIndexFromCoor and getTargetFromCoor for each layout and touch event
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class GridGeometryBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    private GridGeometry geometry = new GridGeometry();
+    private int[] indexes = new int[SAMPLES];
+    private int[] xs = new int[SAMPLES];
+    private int[] ys = new int[SAMPLES];
+    private int next = 0;
+
+
+    @Setup
+    public void setUp() {
+        int columnCount = 5;
+        geometry.update(1080, 16, 16, 16, 200, 200, columnCount, false);
+
+        int rowCount = (itemCount + columnCount - 1) / columnCount;
+        Random random = new Random(42);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            indexes[i] = random.nextInt(itemCount);
+            xs[i] = random.nextInt(1080);
+            ys[i] = random.nextInt(rowCount * 200 + 32);
+        }
+    }
+
+
+    private int nextSample() {
+        next = (next + 1) & (SAMPLES - 1);
+        return next;
+    }
+
+
+    @Benchmark
+    public int columnCount() {
+        return GridMath.columnCount(xs[nextSample()] + 200, 16, 16, 200, itemCount, 0);
+    }
+
+
+    @Benchmark
+    public void coorFromIndex(Blackhole blackhole) {
+        int index = indexes[nextSample()];
+        blackhole.consume(geometry.getLeft(index));
+        blackhole.consume(geometry.getTop(index));
+    }
+
+
+    @Benchmark
+    public int indexFromCoor() {
+        int sample = nextSample();
+        return geometry.getIndexFromCoor(xs[sample], ys[sample], itemCount);
+    }
+
+
+    @Benchmark
+    public int targetFromCoor() {
+        int sample = nextSample();
+        return geometry.getTargetFromCoor(xs[sample], ys[sample], indexes[sample], itemCount);
+    }
+}
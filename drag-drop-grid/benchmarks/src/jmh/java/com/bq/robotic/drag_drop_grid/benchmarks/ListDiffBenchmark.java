@@ -0,0 +1,106 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.benchmarks;
+
+import com.bq.robotic.drag_drop_grid.core.ItemOrder;
+import com.bq.robotic.drag_drop_grid.core.ListDiff;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diff of a submitted list against the current one, done in the background thread, and the
+ * permutation of the items with its result, done in the main thread
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ListDiffBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    private long[] oldIds;
+    private long[] newIds;
+    private int[] sources;
+    private ItemOrder itemOrder = new ItemOrder();
+
+
+    @Setup
+    public void setUp() {
+        oldIds = new long[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            oldIds[i] = i;
+        }
+
+        // A backend update: a few items removed, inserted and moved far away
+        Random random = new Random(42);
+        newIds = oldIds.clone();
+        int changes = Math.max(1, itemCount / 50);
+        for (int i = 0; i < changes; i++) {
+            int from = random.nextInt(itemCount);
+            int to = random.nextInt(itemCount);
+            long id = newIds[from];
+            newIds[from] = newIds[to];
+            newIds[to] = id;
+            newIds[random.nextInt(itemCount)] = itemCount + i;
+        }
+
+        for (int i = 0; i < itemCount; i++) {
+            itemOrder.add();
+        }
+
+        // Only the moves, so the permutation keeps the number of items
+        long[] movedIds = oldIds.clone();
+        for (int i = 0; i < changes; i++) {
+            int from = random.nextInt(itemCount);
+            int to = random.nextInt(itemCount);
+            long id = movedIds[from];
+            movedIds[from] = movedIds[to];
+            movedIds[to] = id;
+        }
+        sources = new ListDiff(oldIds, movedIds).getSources();
+    }
+
+
+    @Benchmark
+    public int diff() {
+        return new ListDiff(oldIds, newIds).getMovedCount();
+    }
+
+
+    @Benchmark
+    public int permute() {
+        itemOrder.permute(sources);
+        return itemOrder.get(0);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+package com.bq.robotic.drag_drop_grid.benchmarks;
+
+import com.bq.robotic.drag_drop_grid.core.SizeHistogram;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computing the size of the biggest child when one child changes its size, with the counted
+ * sizes and with a scan over all the children as it was done before
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MaxChildSizeBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    private SizeHistogram histogram = new SizeHistogram();
+    private int[] sizes;
+    private int[] changedChild = new int[SAMPLES];
+    private int[] newSize = new int[SAMPLES];
+    private int next = 0;
+
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        sizes = new int[itemCount];
+
+        for (int i = 0; i < itemCount; i++) {
+            sizes[i] = 100 + random.nextInt(50);
+            histogram.add(sizes[i]);
+        }
+
+        for (int i = 0; i < SAMPLES; i++) {
+            changedChild[i] = random.nextInt(itemCount);
+            newSize[i] = 100 + random.nextInt(50);
+        }
+    }
+
+
+    @Benchmark
+    public int histogram() {
+        next = (next + 1) & (SAMPLES - 1);
+        int child = changedChild[next];
+
+        histogram.remove(sizes[child]);
+        sizes[child] = newSize[next];
+        histogram.add(sizes[child]);
+
+        return histogram.max();
+    }
+
+
+    @Benchmark
+    public int scan() {
+        next = (next + 1) & (SAMPLES - 1);
+        sizes[changedChild[next]] = newSize[next];
+
+        int max = 0;
+        for (int size : sizes) {
+            max = Math.max(max, size);
+        }
+
+        return max;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+package com.bq.robotic.drag_drop_grid.benchmarks;
+
+import com.bq.robotic.drag_drop_grid.core.GridGeometry;
+import com.bq.robotic.drag_drop_grid.core.ItemOrder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reorder step of a drop: the dragged item is moved in the order of the items and the cells
+ * of the items between its old and its new position are computed again
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ReorderBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    private ItemOrder itemOrder = new ItemOrder();
+    private GridGeometry geometry = new GridGeometry();
+    private int[] from = new int[SAMPLES];
+    private int[] to = new int[SAMPLES];
+    private int next = 0;
+
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < itemCount; i++) {
+            itemOrder.add();
+        }
+
+        geometry.update(1080, 16, 16, 16, 200, 200, 5, false);
+
+        // Drops are usually near the dragged item, at most a few rows away
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            from[i] = random.nextInt(itemCount);
+            to[i] = Math.max(0, Math.min(itemCount - 1, from[i] + random.nextInt(31) - 15));
+        }
+    }
+
+
+    @Benchmark
+    public int reorderStep() {
+        next = (next + 1) & (SAMPLES - 1);
+        int dragged = from[next];
+        int target = to[next];
+
+        itemOrder.move(dragged, target);
+
+        int sum = 0;
+        for (int position = Math.min(dragged, target); position <= Math.max(dragged, target); position++) {
+            sum += itemOrder.get(position) + geometry.getLeft(position) + geometry.getTop(position);
+        }
+
+        return sum;
+    }
+
+
+    @Benchmark
+    public int positionOf() {
+        next = (next + 1) & (SAMPLES - 1);
+        return itemOrder.positionOf(from[next]);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.benchmarks;
+
+import com.bq.robotic.drag_drop_grid.core.ItemOrder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving and restoring the order of the items in the instance state, after the user rearranged
+ * a part of them
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class SaveStateBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    @Param({"0", "100"})
+    public int drops;
+
+    private ItemOrder itemOrder = new ItemOrder();
+    private ItemOrder restoredOrder = new ItemOrder();
+    private byte[] packed;
+
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < itemCount; i++) {
+            itemOrder.add();
+            restoredOrder.add();
+        }
+
+        // Drops are usually near the dragged item, at most a few rows away
+        Random random = new Random(42);
+        for (int i = 0; i < drops; i++) {
+            int from = random.nextInt(itemCount);
+            itemOrder.move(from, Math.max(0, Math.min(itemCount - 1, from + random.nextInt(31) - 15)));
+        }
+
+        packed = itemOrder.pack();
+    }
+
+
+    @Benchmark
+    public int save() {
+        return itemOrder.pack().length;
+    }
+
+
+    @Benchmark
+    public boolean restore() {
+        return restoredOrder.unpack(packed);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+package com.bq.robotic.drag_drop_grid.benchmarks;
+
+import com.bq.robotic.drag_drop_grid.core.SpanLayout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packing of items spanning several cells: a full pack, the incremental pack after moving an item
+ * and the lookup of the item under the finger
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class SpanLayoutBenchmark {
+
+    private static final int SAMPLES = 1024;
+    private static final int COLUMNS = 5;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    private SpanLayout spanLayout = new SpanLayout();
+    private int[] columnSpans;
+    private int[] rowSpans;
+    private int[] from = new int[SAMPLES];
+    private int[] to = new int[SAMPLES];
+    private int[] rows = new int[SAMPLES];
+    private int[] columns = new int[SAMPLES];
+    private int next = 0;
+
+
+    @Setup
+    public void setUp() {
+        columnSpans = new int[itemCount];
+        rowSpans = new int[itemCount];
+
+        // Mostly single cells with some bigger items, like a dashboard
+        Random random = new Random(42);
+        for (int i = 0; i < itemCount; i++) {
+            boolean big = random.nextInt(8) == 0;
+            columnSpans[i] = big ? 1 + random.nextInt(3) : 1;
+            rowSpans[i] = big ? 1 + random.nextInt(2) : 1;
+        }
+
+        spanLayout.pack(COLUMNS, columnSpans, rowSpans, itemCount);
+
+        // Moves are usually near the dragged item, at most a few rows away
+        for (int i = 0; i < SAMPLES; i++) {
+            from[i] = random.nextInt(itemCount);
+            to[i] = Math.max(0, Math.min(itemCount - 1, from[i] + random.nextInt(31) - 15));
+            rows[i] = random.nextInt(spanLayout.getRowCount());
+            columns[i] = random.nextInt(COLUMNS);
+        }
+    }
+
+
+    @Benchmark
+    public int pack() {
+        spanLayout.pack(COLUMNS, columnSpans, rowSpans, itemCount);
+        return spanLayout.getRowCount();
+    }
+
+
+    @Benchmark
+    public int move() {
+        next = (next + 1) & (SAMPLES - 1);
+        return spanLayout.move(from[next], to[next]);
+    }
+
+
+    @Benchmark
+    public int positionAt() {
+        next = (next + 1) & (SAMPLES - 1);
+        return spanLayout.getPositionAt(rows[next], columns[next]);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.benchmarks;
+
+import com.bq.robotic.drag_drop_grid.core.WobbleClock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per frame cost of wobbling the children while dragging: the culling of each child, its pivot
+ * and the rotation matrix the canvas builds for it, as drawChild does. The shared clock computes
+ * the angle once per frame and skips the children out of the viewport. The animation per child
+ * computed an angle for each child and drew all of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class WobbleBenchmark {
+
+    private static final int COLUMNS = 5;
+    private static final int CELL_WIDTH = 200;
+    private static final int CELL_HEIGHT = 180;
+    private static final int VIEWPORT_HEIGHT = 1800;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int childCount;
+
+    private WobbleClock wobbleClock = new WobbleClock();
+    private int[] lefts, tops, widths, heights;
+    private float[] matrix = new float[6];
+    private int scroll;
+    private long time = 0;
+
+
+    @Setup
+    public void setUp() {
+        lefts = new int[childCount];
+        tops = new int[childCount];
+        widths = new int[childCount];
+        heights = new int[childCount];
+
+        for (int i = 0; i < childCount; i++) {
+            lefts[i] = (i % COLUMNS) * CELL_WIDTH;
+            tops[i] = (i / COLUMNS) * CELL_HEIGHT;
+            widths[i] = CELL_WIDTH - 8;
+            heights[i] = CELL_HEIGHT - 8;
+        }
+
+        // In the middle of the content, as while auto-scrolling a drag
+        int contentHeight = (childCount + COLUMNS - 1) / COLUMNS * CELL_HEIGHT;
+        scroll = Math.max(contentHeight - VIEWPORT_HEIGHT, 0) / 2;
+    }
+
+
+    /**
+     * Rotation around a pivot, as Canvas.rotate(degrees, px, py) concatenates it
+     */
+    private static void rotate(float[] matrix, float degrees, float px, float py) {
+        double radians = Math.toRadians(degrees);
+        float sin = (float) Math.sin(radians);
+        float cos = (float) Math.cos(radians);
+
+        matrix[0] = cos;
+        matrix[1] = -sin;
+        matrix[2] = sin * py + (1 - cos) * px;
+        matrix[3] = sin;
+        matrix[4] = cos;
+        matrix[5] = -sin * px + (1 - cos) * py;
+    }
+
+
+    @Benchmark
+    public float sharedClockFrame() {
+        time += 16;
+        float angle = wobbleClock.getAngle(time);
+        float sum = 0;
+
+        // Children out of the viewport, plus one row at each side, aren't drawn
+        int top = scroll - CELL_HEIGHT;
+        int bottom = scroll + VIEWPORT_HEIGHT + CELL_HEIGHT;
+
+        for (int i = 0; i < childCount; i++) {
+            if (tops[i] + heights[i] < top || tops[i] > bottom) {
+                continue;
+            }
+
+            rotate(matrix, angle, lefts[i] + .8f * widths[i], tops[i] + .8f * heights[i]);
+            sum += matrix[2] + matrix[5];
+        }
+
+        return sum;
+    }
+
+
+    @Benchmark
+    public float animationPerChildFrame() {
+        time += 16;
+        float sum = 0;
+
+        for (int i = 0; i < childCount; i++) {
+            float angle = wobbleClock.getAngle(time);
+            rotate(matrix, angle, lefts[i] + .8f * widths[i], tops[i] + .8f * heights[i]);
+            sum += matrix[2] + matrix[5];
+        }
+
+        return sum;
+    }
+}
@@ -26,11 +26,11 @@
 package com.bq.robotic.drag_drop_grid;
 
 import android.content.Context;
-import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.graphics.drawable.StateListDrawable;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.widget.ImageButton;
 
 
@@ -47,6 +47,12 @@ public class DeleteDropZoneView extends ImageButton {
 
     private boolean modifiedBackgroundInsideThisClass = false;
 
+    // The background is built only when the constructors have finished
+    private boolean initialized = false;
+
+    private static final int[] HIGHLIGHT_STATE_SET = new int[] { android.R.attr.state_activated };
+    private static final int[] DEFAULT_STATE_SET = new int[0];
+
 
     /***********************************************************************************************
      *                                      CONSTRUCTORS                                           *
@@ -60,8 +66,8 @@ public class DeleteDropZoneView extends ImageButton {
 
         setImageResource(android.R.drawable.ic_menu_delete);
         definedBackgroundDrawable = getBackground();
-        getBackground().setAlpha(200);
-
+        initialized = true;
+        updateBackground();
     }
 
 
@@ -73,8 +79,8 @@ public class DeleteDropZoneView extends ImageButton {
 
         setImageResource(android.R.drawable.ic_menu_delete);
         definedBackgroundDrawable = getBackground();
-        getBackground().setAlpha(200);
-
+        initialized = true;
+        updateBackground();
     }
 
 
@@ -102,6 +108,7 @@ public class DeleteDropZoneView extends ImageButton {
      */
     public void setHighlightDeleteDrawable(Drawable deleteHighlightDrawable) {
         definedHighlightBackgroundDrawable = deleteHighlightDrawable;
+        updateBackground();
     }
 
 
@@ -111,6 +118,7 @@ public class DeleteDropZoneView extends ImageButton {
      */
     public void setHighlightDeleteDrawable(int deleteHighlightDrawableId) {
         definedHighlightBackgroundDrawable = getContext().getResources().getDrawable(deleteHighlightDrawableId);
+        updateBackground();
     }
 
 
@@ -120,6 +128,7 @@ public class DeleteDropZoneView extends ImageButton {
      */
     public void setHighlightDeleteColor(int deleteHighlightColor) {
         definedHighlightBackgroundColor = deleteHighlightColor;
+        updateBackground();
     }
 
     @Override
@@ -128,6 +137,7 @@ public class DeleteDropZoneView extends ImageButton {
 
         if(!modifiedBackgroundInsideThisClass) {
             definedBackgroundDrawable = getBackground();
+            updateBackground();
         }
     }
 
@@ -137,6 +147,7 @@ public class DeleteDropZoneView extends ImageButton {
 
         if(!modifiedBackgroundInsideThisClass) {
             definedBackgroundDrawable = getBackground();
+            updateBackground();
         }
     }
 
@@ -146,57 +157,49 @@ public class DeleteDropZoneView extends ImageButton {
 
         if(!modifiedBackgroundInsideThisClass) {
             definedBackgroundDrawable = getBackground();
+            updateBackground();
         }
     }
 
     /**
-     * The default background is black, and when the user drag the view over the delete zone it
-     * highlight the delete zone as a hover with a red color
-     *
-     * @param canvas place to draw for the delete zone
+     * Build the background with both states: the default one is the defined background or black,
+     * and the activated one is the highlight when the user drags a view over the delete zone, the
+     * defined one or red. Changing the state doesn't change the background, the drawable just
+     * draws the other state.
      */
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-
-        if (straight) {
-            if(definedBackgroundDrawable != null) {
-                modifiedBackgroundInsideThisClass = true;
-                setBackgroundDrawable(definedBackgroundDrawable);
-                modifiedBackgroundInsideThisClass = false;
-                getBackground().setAlpha(255);
-
-            }  else {
-                modifiedBackgroundInsideThisClass = true;
-                setBackgroundColor(DEFAULT_BACKGROUND_COLOR);
-                modifiedBackgroundInsideThisClass = false;
-                getBackground().setAlpha(200);
-            }
+    private void updateBackground() {
+        if (!initialized) {
+            return;
+        }
 
-//            getBackground().setAlpha(200);
+        Drawable straightBackground;
+        if (definedBackgroundDrawable != null) {
+            straightBackground = definedBackgroundDrawable;
+            straightBackground.setAlpha(255);
+        } else {
+            straightBackground = new ColorDrawable(DEFAULT_BACKGROUND_COLOR);
+            straightBackground.setAlpha(200);
+        }
 
+        Drawable highlightBackground;
+        if (definedHighlightBackgroundDrawable != null) {
+            highlightBackground = definedHighlightBackgroundDrawable;
+            highlightBackground.setAlpha(255);
+        } else if (definedHighlightBackgroundColor != null) {
+            highlightBackground = new ColorDrawable(definedHighlightBackgroundColor);
+            highlightBackground.setAlpha(255);
         } else {
-            if(definedHighlightBackgroundDrawable != null) {
-                modifiedBackgroundInsideThisClass = true;
-                setBackgroundDrawable(definedHighlightBackgroundDrawable);
-                modifiedBackgroundInsideThisClass = false;
-                getBackground().setAlpha(255);
-
-            } else if(definedHighlightBackgroundColor != null) {
-                modifiedBackgroundInsideThisClass = true;
-                setBackgroundColor(definedHighlightBackgroundColor);
-                modifiedBackgroundInsideThisClass = false;
-                getBackground().setAlpha(255);
-
-            } else {
-                modifiedBackgroundInsideThisClass = true;
-                setBackgroundColor(DEFAULT_BACKGROUND_HIGHLIGHT_COLOR);
-                modifiedBackgroundInsideThisClass = false;
-                getBackground().setAlpha(200);
-            }
-
-//            getBackground().setAlpha(200);
+            highlightBackground = new ColorDrawable(DEFAULT_BACKGROUND_HIGHLIGHT_COLOR);
+            highlightBackground.setAlpha(200);
         }
+
+        StateListDrawable background = new StateListDrawable();
+        background.addState(HIGHLIGHT_STATE_SET, highlightBackground);
+        background.addState(DEFAULT_STATE_SET, straightBackground);
+
+        modifiedBackgroundInsideThisClass = true;
+        setBackgroundDrawable(background);
+        modifiedBackgroundInsideThisClass = false;
     }
 
 
@@ -204,8 +207,12 @@ public class DeleteDropZoneView extends ImageButton {
      * Create the hover effect
      */
     public void highlight() {
+        if (!straight) {
+            return;
+        }
+
         straight = false;
-        invalidate();
+        setActivated(true);
     }
 
 
@@ -213,8 +220,12 @@ public class DeleteDropZoneView extends ImageButton {
      * Disable the over effect
      */
     public void smother() {
+        if (straight) {
+            return;
+        }
+
         straight = true;
-        invalidate();
+        setActivated(false);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,252 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+package com.bq.robotic.drag_drop_grid;
+
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Moves the children between several {@link DraggableGridView}s. When a dragged child leaves its
+ * grid, the view itself is carried in a shared {@link DragLayer} over all the grids, the grid under
+ * the finger opens a gap for it, and on the drop it is inserted in that grid with a single insert.
+ * If it is dropped out of every grid, it goes back to where it was.
+ *
+ * Only the grids without an adapter can give or take children.
+ */
+public class DragCoordinator {
+
+    private final DragLayer dragLayer;
+    private final ArrayList<DraggableGridView> grids = new ArrayList<DraggableGridView>();
+    private OnMoveBetweenGridsListener onMoveBetweenGridsListener;
+
+    // Child being carried, and the grid and position where it would be dropped
+    private View floatingView;
+    private DraggableGridView sourceGrid, hoveredGrid;
+    private int sourcePosition = -1, hoveredPosition = -1;
+    private final int[] windowLocation = new int[2];
+
+
+    /**
+     * Create a coordinator that carries the children in a drag layer
+     *
+     * @param dragLayer the layer, it must cover all the grids
+     */
+    public DragCoordinator(DragLayer dragLayer) {
+        this.dragLayer = dragLayer;
+    }
+
+
+    /**
+     * Let a grid give and take children to and from the other grids of this coordinator
+     *
+     * @param grid the grid
+     */
+    public void addGrid(DraggableGridView grid) {
+        if (!grids.contains(grid)) {
+            grids.add(grid);
+            grid.setDragCoordinator(this);
+        }
+    }
+
+
+    /**
+     * Stop moving children to and from a grid. If one of its children is being carried, it goes
+     * back to it.
+     *
+     * @param grid the grid
+     */
+    public void removeGrid(DraggableGridView grid) {
+        if (grid == sourceGrid || grid == hoveredGrid) {
+            cancelDrag();
+        }
+
+        if (grids.remove(grid)) {
+            grid.setDragCoordinator(null);
+        }
+    }
+
+
+    /**
+     * Sets the listener for the children moved between grids. The moves inside a grid are still
+     * reported by the {@link OnRearrangeListener} of that grid.
+     *
+     * @param l the listener
+     */
+    public void setOnMoveBetweenGridsListener(OnMoveBetweenGridsListener l) {
+        this.onMoveBetweenGridsListener = l;
+    }
+
+
+    /**
+     * Checks if a child is being carried between grids
+     *
+     * @return if there is a child in the drag layer
+     */
+    public boolean isDragging() {
+        return floatingView != null;
+    }
+
+
+    /**
+     * Start carrying a child that was dragged out of its grid
+     *
+     * @param grid     the grid of the child
+     * @param view     the view of the child, already removed from the grid
+     * @param position the position it had in the grid
+     * @param width    width of the view while it is carried
+     * @param height   height of the view while it is carried
+     * @param x        x coordinate of the finger in the grid
+     * @param y        y coordinate of the finger in the grid
+     */
+    void startDrag(DraggableGridView grid, View view, int position, int width, int height, int x, int y) {
+        floatingView = view;
+        sourceGrid = grid;
+        sourcePosition = position;
+
+        dragLayer.addFloatingView(view, width, height);
+        onDragMove(grid, x, y);
+    }
+
+
+    /**
+     * Move the carried child with the finger and open a gap for it in the grid under the finger
+     *
+     * @param grid the grid that gets the touch events, where the drag started
+     * @param x    x coordinate of the finger in that grid
+     * @param y    y coordinate of the finger in that grid
+     */
+    void onDragMove(DraggableGridView grid, int x, int y) {
+        if (floatingView == null) {
+            return;
+        }
+
+        grid.getLocationInWindow(windowLocation);
+        int windowX = windowLocation[0] + x;
+        int windowY = windowLocation[1] + y;
+
+        dragLayer.moveFloatingView(windowX, windowY);
+
+        DraggableGridView target = null;
+        int targetPosition = -1;
+
+        for (int i = 0; i < grids.size() && target == null; i++) {
+            DraggableGridView candidate = grids.get(i);
+            if (!candidate.isShown() || candidate.getAdapter() != null) {
+                continue;
+            }
+
+            candidate.getLocationInWindow(windowLocation);
+            int localX = windowX - windowLocation[0];
+            int localY = windowY - windowLocation[1];
+
+            if (localX >= 0 && localY >= 0 && localX < candidate.getWidth() && localY < candidate.getHeight()) {
+                target = candidate;
+                targetPosition = candidate.getInsertPositionFromCoor(localX, localY);
+            }
+        }
+
+        if (hoveredGrid != null && hoveredGrid != target) {
+            hoveredGrid.hideInsertGap();
+        }
+
+        hoveredGrid = target;
+        hoveredPosition = targetPosition;
+
+        if (target != null) {
+            target.showInsertGap(targetPosition);
+        }
+    }
+
+
+    /**
+     * Drop the carried child in the grid under the finger, or back where it was if there isn't any
+     *
+     * @param grid the grid that gets the touch events, where the drag started
+     * @param x    x coordinate of the finger in that grid
+     * @param y    y coordinate of the finger in that grid
+     */
+    void onDrop(DraggableGridView grid, int x, int y) {
+        if (floatingView == null) {
+            return;
+        }
+
+        onDragMove(grid, x, y);
+
+        if (hoveredGrid == null) {
+            cancelDrag();
+            return;
+        }
+
+        DraggableGridView fromGrid = sourceGrid;
+        int fromPosition = sourcePosition;
+        DraggableGridView toGrid = hoveredGrid;
+        int toPosition = hoveredPosition;
+
+        toGrid.hideInsertGap();
+        View view = dragLayer.removeFloatingView();
+        clear();
+
+        toGrid.addView(view, toPosition);
+
+        if (toGrid != fromGrid) {
+            if (onMoveBetweenGridsListener != null) {
+                onMoveBetweenGridsListener.onMoveBetweenGrids(fromGrid, fromPosition, toGrid, toPosition);
+            }
+        } else if (toPosition != fromPosition && fromGrid.onRearrangeListener != null) {
+            fromGrid.onRearrangeListener.onRearrange(fromPosition, toPosition);
+        }
+    }
+
+
+    /**
+     * Put the carried child back in its grid, where it was before the drag
+     */
+    public void cancelDrag() {
+        if (floatingView == null) {
+            return;
+        }
+
+        if (hoveredGrid != null) {
+            hoveredGrid.hideInsertGap();
+        }
+
+        DraggableGridView grid = sourceGrid;
+        int position = sourcePosition;
+        View view = dragLayer.removeFloatingView();
+        clear();
+
+        grid.addView(view, position);
+    }
+
+
+    /**
+     * Forget the carried child
+     */
+    private void clear() {
+        floatingView = null;
+        sourceGrid = null;
+        hoveredGrid = null;
+        sourcePosition = -1;
+        hoveredPosition = -1;
+    }
+}
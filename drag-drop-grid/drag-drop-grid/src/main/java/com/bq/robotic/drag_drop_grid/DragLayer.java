@@ -0,0 +1,124 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+package com.bq.robotic.drag_drop_grid;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Layer over several {@link DraggableGridView}s where a child dragged out of its grid is drawn
+ * while it is carried to another one. It must cover all the grids of its {@link DragCoordinator},
+ * usually as the last child of a FrameLayout that contains them. It doesn't take any touch, so
+ * the grids below it keep working as usual.
+ */
+public class DragLayer extends ViewGroup {
+
+    private View floatingView;
+    private int floatingLeft, floatingTop;
+    private final int[] windowLocation = new int[2];
+
+
+    public DragLayer(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+
+    public DragLayer(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+    }
+
+
+    public DragLayer(Context context) {
+        super(context);
+    }
+
+
+    /**
+     * Start drawing a view carried between grids. The view must not have a parent.
+     *
+     * @param view   the view
+     * @param width  width of the view while it is carried
+     * @param height height of the view while it is carried
+     */
+    void addFloatingView(View view, int width, int height) {
+        floatingView = view;
+        // The layout params of the grid are kept, the view goes back to a grid after the drag
+        addViewInLayout(view, -1, view.getLayoutParams(), true);
+        view.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+    }
+
+
+    /**
+     * Move the carried view. Only the view is laid out again, without a layout pass of the layer.
+     *
+     * @param windowX x coordinate of the center of the view in the window
+     * @param windowY y coordinate of the center of the view in the window
+     */
+    void moveFloatingView(int windowX, int windowY) {
+        if (floatingView == null) {
+            return;
+        }
+
+        getLocationInWindow(windowLocation);
+        floatingLeft = windowX - windowLocation[0] - floatingView.getMeasuredWidth() / 2;
+        floatingTop = windowY - windowLocation[1] - floatingView.getMeasuredHeight() / 2;
+        floatingView.layout(floatingLeft, floatingTop, floatingLeft + floatingView.getMeasuredWidth(),
+                floatingTop + floatingView.getMeasuredHeight());
+    }
+
+
+    /**
+     * Stop drawing the carried view
+     *
+     * @return the view, without a parent, or null if there wasn't any
+     */
+    View removeFloatingView() {
+        View view = floatingView;
+        floatingView = null;
+
+        if (view != null) {
+            removeViewInLayout(view);
+            invalidate();
+        }
+
+        return view;
+    }
+
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec));
+    }
+
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        if (floatingView != null) {
+            floatingView.layout(floatingLeft, floatingTop, floatingLeft + floatingView.getMeasuredWidth(),
+                    floatingTop + floatingView.getMeasuredHeight());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package com.bq.robotic.drag_drop_grid;
+
+import android.database.DataSetObservable;
+import android.database.DataSetObserver;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Supplies the items of a {@link DraggableGridView} on demand. When an adapter is set, the grid
+ * only creates views for the visible rows (plus a small margin) and reuses the views that scroll
+ * out of the viewport, instead of keeping one child per item.
+ *
+ * The data behind the adapter must be updated by the app in the {@link OnRearrangeListener}
+ * callbacks, so that after a drop the adapter returns the items in their new order.
+ */
+public abstract class DraggableGridAdapter {
+
+    private final DataSetObservable dataSetObservable = new DataSetObservable();
+
+
+    /**
+     * Number of items in the grid
+     *
+     * @return the number of items
+     */
+    public abstract int getCount();
+
+
+    /**
+     * Get a view that displays the item at the given position
+     *
+     * @param position    position of the item
+     * @param convertView an old view of the same type to reuse if possible, or null
+     * @param parent      the grid the view will be attached to
+     * @return the view of the item
+     */
+    public abstract View getView(int position, View convertView, ViewGroup parent);
+
+
+    /**
+     * Get the type of view that will be created by {@link #getView} for the given item. Only
+     * views of the same type are passed back as convertView.
+     *
+     * @param position position of the item
+     * @return the view type, between 0 and {@link #getViewTypeCount()} - 1
+     */
+    public int getItemViewType(int position) {
+        return 0;
+    }
+
+
+    /**
+     * Number of different view types returned by {@link #getItemViewType}
+     *
+     * @return the number of view types
+     */
+    public int getViewTypeCount() {
+        return 1;
+    }
+
+
+    /**
+     * Register an observer that is called when the data of the adapter changes
+     *
+     * @param observer the observer
+     */
+    public void registerDataSetObserver(DataSetObserver observer) {
+        dataSetObservable.registerObserver(observer);
+    }
+
+
+    /**
+     * Unregister an observer previously registered with {@link #registerDataSetObserver}
+     *
+     * @param observer the observer
+     */
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+        dataSetObservable.unregisterObserver(observer);
+    }
+
+
+    /**
+     * Notify the grid that the data has changed and the visible views must be rebound
+     */
+    public void notifyDataSetChanged() {
+        dataSetObservable.notifyChanged();
+    }
+}
@@ -25,39 +25,58 @@ package com.bq.robotic.drag_drop_grid;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.database.DataSetObserver;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
 import android.graphics.Point;
 import android.graphics.Rect;
 import android.os.Handler;
-import android.os.SystemClock;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
 import android.util.TypedValue;
-import android.view.Display;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.view.WindowManager;
 import android.view.animation.AccelerateDecelerateInterpolator;
 import android.view.animation.AlphaAnimation;
 import android.view.animation.Animation;
 import android.view.animation.AnimationSet;
-import android.view.animation.RotateAnimation;
+import android.view.animation.Interpolator;
 import android.view.animation.ScaleAnimation;
-import android.view.animation.TranslateAnimation;
 import android.widget.AdapterView.OnItemClickListener;
 import android.widget.AdapterView.OnItemLongClickListener;
 import android.widget.ImageView;
 
+import com.bq.robotic.drag_drop_grid.core.EdgeAutoScroller;
+import com.bq.robotic.drag_drop_grid.core.FlingScroller;
+import com.bq.robotic.drag_drop_grid.core.GridGeometry;
+import com.bq.robotic.drag_drop_grid.core.GridMath;
+import com.bq.robotic.drag_drop_grid.core.ItemOrder;
+import com.bq.robotic.drag_drop_grid.core.ListDiff;
+import com.bq.robotic.drag_drop_grid.core.SizeHistogram;
+import com.bq.robotic.drag_drop_grid.core.SpanLayout;
+import com.bq.robotic.drag_drop_grid.core.VelocityHistory;
+import com.bq.robotic.drag_drop_grid.core.WobbleClock;
+
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 public class DraggableGridView extends ViewGroup implements View.OnTouchListener, View.OnClickListener, View.OnLongClickListener {
     // Layout vars
     protected int columnCount, scroll = 0;
     protected int numberOfColumns = 0; // if want to set a fixed value for the columns
-    protected float lastDelta = 0;
-    protected Handler handler = new Handler();
     protected Float fixedChildrenWidth = null;
     protected Float fixedChildrenHeight = null;
 
@@ -67,15 +86,58 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
     protected int dragged = -1, lastX = -1, lastY = -1, lastTarget = -1;
     protected boolean enabled = true, touching = false;
 
+    // Scrolling
+    protected static final float SCROLL_TICK = 25;
+    protected static final int AUTO_SCROLL_EDGE_DIP = 64;
+    protected static final int AUTO_SCROLL_MAX_VELOCITY_DIP = 1500;
+    protected EdgeAutoScroller autoScroller = new EdgeAutoScroller();
+    protected boolean attachedToWindow = false;
+    private long lastFrameTimeNanos = -1, scrollDriverStartNanos;
+    private long lastDragFrameNanos = -1;
+    protected VelocityHistory velocityHistory = new VelocityHistory();
+    protected FlingScroller flingScroller = new FlingScroller();
+    private float minimumFlingVelocity = 0;
+
+    // Paged mode, pages side by side with a fixed number of rows and columns each
+    protected static final long PAGE_FLIP_DELAY = 600;
+    protected static final int PAGE_EDGE_DIP = 24;
+    protected int rowsPerPage = 0, columnsPerPage = 0;
+    protected int currentPage = 0;
+    private int pageEdgeZone = 0;
+    private float pageEdgeDwell = 0;
+
     // Animation
     public static int animT = 150;
     protected ArrayList<Integer> newPositions = new ArrayList<Integer>();
+    protected int gapFirst = -1, gapLast = -1;
+    private static final Interpolator GAP_INTERPOLATOR = new AccelerateDecelerateInterpolator();
+
+    // Drag shadow, a snapshot of the dragged child drawn over the children while the child stays in
+    // its cell as a placeholder
+    protected static final float PLACEHOLDER_ALPHA = .3f;
+    protected static final int DRAG_SHADOW_ALPHA = 128;
+    protected boolean dragShadowEnabled = false;
+    private boolean dragShadowShown = false;
+    private Bitmap dragShadow;
+    private final Rect dragShadowBounds = new Rect();
+    private final Rect dragShadowDirty = new Rect();
+    private final Paint dragShadowPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    // Wobble of the children while dragging, one clock for all of them
+    protected boolean wobbleEnabled = true;
+    protected WobbleClock wobbleClock = new WobbleClock();
+    protected float wobbleAngle = 0;
+
+    // Order of the items, as the children are never reordered
+    protected ItemOrder itemOrder = new ItemOrder();
 
     // Listeners
     protected OnRearrangeListener onRearrangeListener;
     //	protected OnClickListener secondaryOnClickListener;
     protected OnItemClickListener onItemClickListener;
     protected OnItemLongClickListener onItemLongClickListener;
+    protected OnHierarchyChangeListener onHierarchyChangeListener;
+    protected OnPageChangeListener onPageChangeListener;
 
     // Context
     Context context;
@@ -83,10 +145,76 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
     // Delete zone
     protected DeleteDropZoneView deleteZone;
     protected boolean draggedInDeleteZone = false;
+    private final Rect deleteZoneBounds = new Rect();
+    private boolean deleteZoneBoundsValid = false;
+    private int deleteZoneSlop = -1;
+    private final int[] windowLocation = new int[2];
+
+    // Drag between grids, the dragged child is handed off to the coordinator when it leaves the grid
+    protected DragCoordinator dragCoordinator;
+    protected boolean dragHandedOff = false;
+    private int insertGap = -1;
+
+    // Adapter mode
+    protected DraggableGridAdapter adapter;
+    protected int itemCount = 0;
+    protected int offscreenRows = 1;
+    protected SparseArray<View> activeViews = new SparseArray<View>();
+    protected RecycleBin recycleBin = new RecycleBin();
+    private int draggedChildIndex = -1;
 
     // Manage child sizes and padding
     protected int biggestChildWidth, biggestChildHeight;
+    protected SizeHistogram childWidths = new SizeHistogram();
+    protected SizeHistogram childHeights = new SizeHistogram();
+    private int fixedChildWidthMeasureSpec = -1, fixedChildHeightMeasureSpec = -1;
     protected float screenWidth;
+    protected GridGeometry geometry = new GridGeometry();
+
+    // Batch of changes, they are laid out together when the outermost batch ends
+    protected int batchDepth = 0;
+    private boolean layoutRequestedInBatch = false, itemsAddedInBatch = false;
+
+    // Performance counters, only when they are set
+    protected GridMetrics metrics;
+
+    // Items spanning several cells, they are packed only if there is any of them
+    protected SpanLayout spanLayout = new SpanLayout();
+    private int spannedChildCount = 0;
+    private boolean spansChanged = false;
+
+    // The items were put in another order at once, all of them are laid out (and packed) again
+    private boolean relayoutAll = false;
+    private int spanHover = -1;
+    private int[] columnSpanBuffer = new int[0], rowSpanBuffer = new int[0];
+
+    // Images of the children rendered in the background, the nearest to the viewport first
+    protected ThumbnailLoader thumbnailLoader;
+    private int thumbnailFirst = -1, thumbnailLast = -1;
+
+    // Lists of ids submitted, diffed in a background thread and applied in the main thread
+    public static final long NO_ITEM_ID = Long.MIN_VALUE;
+    private static ExecutorService diffExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private int submitGeneration = 0;
+    private Runnable heldDiffDelivery;
+
+    // Saved state restored before the children were added or laid out, applied when they are
+    private byte[] pendingOrder;
+    private int pendingScrollPosition = -1;
+    private float pendingScrollFraction = 0;
+    private int pendingPage = -1;
+
+    // The order of the items follows every child added or removed, unless the grid updates it
+    // itself. The children removed in a range stay in the array of children until all of them
+    // are removed, so the indexes of the next ones are shifted by them.
+    private boolean trackingChildren = true;
+    private View firstChildInRemoval;
+    private int childrenInRemoval = 0;
+    private int lastChildIndexInRemoval = -1;
+
+    // Incremental layout, positions of the items placed in the last layout pass
+    private int laidOutFirst = 0, laidOutLast = -1, laidOutItemCount = -1;
 
     // Debugging
     private static final String LOG_TAG = "DraggableGridView";
@@ -103,10 +231,8 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
         this.context = context;
 
         setListeners();
-
-        handler.removeCallbacks(updateTask);
-        handler.postAtTime(updateTask, SystemClock.uptimeMillis() + 500);
         setChildrenDrawingOrderEnabled(true);
+        setScaledScrollLimits();
     }
 
 
@@ -115,9 +241,8 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
 
         this.context = context;
         setListeners();
-        handler.removeCallbacks(updateTask);
-        handler.postAtTime(updateTask, SystemClock.uptimeMillis() + 500);
         setChildrenDrawingOrderEnabled(true);
+        setScaledScrollLimits();
 
     }
 
@@ -130,42 +255,78 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
 
         this.context = context;
         setListeners();
-        handler.removeCallbacks(updateTask);
-        handler.postAtTime(updateTask, SystemClock.uptimeMillis() + 500);
         setChildrenDrawingOrderEnabled(true);
+        setScaledScrollLimits();
     }
 
 
     /**
-     * Task for the scrolling and repaint the layout
+     * Scrolls the grid once per frame, only while there is a fling, an overscroll to settle or a
+     * drag that can auto-scroll
      */
-    protected Runnable updateTask = new Runnable() {
-        public void run() {
+    protected FrameDriver scrollDriver = FrameDriver.create(new FrameDriver.Callback() {
+        public boolean doFrame(long frameTimeNanos) {
+            return onScrollFrame(frameTimeNanos);
+        }
+    });
 
-            if (dragged != -1) {
-                if (lastY < getPaddingTop() * 3 && scroll > 0) {
-                    scroll -= 20;
-                } else if (lastY > getBottom() - getTop() - (getPaddingBottom() * 3)
-                        && scroll < getMaxScroll()) {
-                    scroll += 20;
-                }
 
-            } else if (lastDelta != 0 && !touching) {
-                scroll += lastDelta;
-                lastDelta *= .9;
-                if (Math.abs(lastDelta) < .25) {
-                    lastDelta = 0;
-                }
-            }
+    /**
+     * Rotates the children once per frame while dragging, instead of an animation per child
+     */
+    protected FrameDriver wobbleDriver = FrameDriver.create(new FrameDriver.Callback() {
+        public boolean doFrame(long frameTimeNanos) {
+            return onWobbleFrame(frameTimeNanos);
+        }
+    });
 
-            clampScroll();
-            requestLayout();
 
-            handler.postDelayed(this, 25);
+    /**
+     * Counts the frames of the whole drag in the metrics, also while the grid doesn't scroll
+     */
+    protected FrameDriver metricsDriver = FrameDriver.create(new FrameDriver.Callback() {
+        public boolean doFrame(long frameTimeNanos) {
+            return onDragMetricsFrame(frameTimeNanos);
+        }
+    });
+
+
+    /**
+     * Rebind the visible views when the data of the adapter changes
+     */
+    protected DataSetObserver adapterObserver = new DataSetObserver() {
+        @Override
+        public void onChanged() {
+            onAdapterDataChanged();
+        }
+
+        @Override
+        public void onInvalidated() {
+            onAdapterDataChanged();
         }
     };
 
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        attachedToWindow = true;
+        wakeScrollDriver();
+    }
+
+
+    @Override
+    protected void onDetachedFromWindow() {
+        attachedToWindow = false;
+        dragShadow = null;
+        scrollDriver.stop();
+        wobbleDriver.stop();
+        metricsDriver.stop();
+        wobbleAngle = 0;
+        super.onDetachedFromWindow();
+    }
+
+
     /***********************************************************************************************
      *                                   GETTERS AND SETTERS                                       *
      **********************************************************************************************/
@@ -177,6 +338,7 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
      */
     public void setNumberOfColumns(int numberOfColumns) {
         this.numberOfColumns = numberOfColumns;
+        requestLayout();
     }
 
 
@@ -207,6 +369,7 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
      */
     public void setCenterChildrenInGrid(boolean centerChildrenInGrid) {
         this.centerChildrenInGrid = centerChildrenInGrid;
+        requestLayout();
     }
 
 
@@ -225,6 +388,7 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
      */
     public void setFixedChildrenWidth(float fixedChildrenWidth) {
         this.fixedChildrenWidth = fixedChildrenWidth;
+        requestLayout();
     }
 
 
@@ -243,833 +407,3077 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
      */
     public void setFixedChildrenHeight(float fixedChildrenHeight) {
         this.fixedChildrenHeight = fixedChildrenHeight;
+        requestLayout();
     }
 
 
-
-    /***********************************************************************************************
-     *                                       MANAGE CHILDREN                                       *
-     **********************************************************************************************/
-
     /**
-     * And a new child
+     * Set the adapter that supplies the items of the grid. With an adapter, the grid only creates
+     * views for the visible rows and recycles the ones that scroll out of the viewport, so the
+     * children can't be added or removed with addView or removeViewAt any more.
+     * Setting a fixed width and height for the children is recommended in this mode, as the size
+     * of the cells is computed only from the views that are currently created.
      *
-     * @param child a new child
+     * @param adapter the adapter, or null for adding the children by hand again
      */
-    @Override
-    public void addView(View child) {
-        super.addView(child);
-        newPositions.add(-1);
+    public void setAdapter(DraggableGridAdapter adapter) {
+        cancelTouch();
 
-        if (deleteZone != null) {
-            deleteZone.bringToFront();
+        if (this.adapter != null) {
+            this.adapter.unregisterDataSetObserver(adapterObserver);
         }
-    }
 
+        super.removeAllViews();
+        itemOrder.clear();
+        activeViews.clear();
+        recycleBin.clear();
+        newPositions.clear();
 
-    /**
-     * Remove a child
-     *
-     * @param index the index of the child to remove
-     */
-    @Override
-    public void removeViewAt(int index) {
-        super.removeViewAt(index);
-        newPositions.remove(index);
+        this.adapter = adapter;
+
+        if (adapter != null) {
+            adapter.registerDataSetObserver(adapterObserver);
+            itemCount = adapter.getCount();
+            resetNewPositions();
+        } else {
+            itemCount = 0;
+        }
+
+        scroll = 0;
+        requestLayout();
     }
 
 
     /**
-     * Remove all children
+     * Get the adapter that supplies the items of the grid
+     *
+     * @return the adapter, or null if the children are added by hand
      */
-    public void removeAll() {
-        cancelTouch();
-        super.removeAllViews();
-        newPositions.clear();
-        invalidate();
+    public DraggableGridAdapter getAdapter() {
+        return adapter;
     }
 
 
-    /***********************************************************************************************
-     *                                  MANAGE CHILDREN POSITIONS                                  *
-     **********************************************************************************************/
-
     /**
-     * Ask all children to measure themselves and compute the measurement of this
-     * layout based on the children.
+     * Set if the children wobble while dragging
+     *
+     * @param wobbleEnabled if the children wobble or not
      */
-    @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        int widthSize = MeasureSpec.getSize(widthMeasureSpec);
-        int heightSize = MeasureSpec.getSize(heightMeasureSpec);
-
-        measureChildren(MeasureSpec.UNSPECIFIED, MeasureSpec.UNSPECIFIED);
+    public void setWobbleEnabled(boolean wobbleEnabled) {
+        this.wobbleEnabled = wobbleEnabled;
 
-        WindowManager wm = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
-        Display display = wm.getDefaultDisplay();
-
-        if (deleteZone != null) {
-//            measureChild(deleteZone, MeasureSpec.makeMeasureSpec(display.getWidth(), MeasureSpec.EXACTLY),
-//                    MeasureSpec.makeMeasureSpec(getPixelFromDip(40), MeasureSpec.EXACTLY));
-
-            measureChild(deleteZone, widthMeasureSpec, heightMeasureSpec);
+        if (!wobbleEnabled) {
+            wobbleDriver.stop();
+            wobbleAngle = 0;
+            invalidate();
         }
-
-        setMeasuredDimension(widthSize, heightSize);
     }
 
 
     /**
-     * Manage where to position the children (the ImageViews) in the grid layout.
-     * We find out how many columns are needed to arrange the children's views, attending to the
-     * biggest padding of all the children an using it for all children, in order to have the same
-     * number of columns in all rows.
+     * Checks if the children wobble while dragging
+     *
+     * @return if the children wobble or not
      */
-    @Override
-    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-
-//        Log.e(LOG_TAG, "screen dpi: " + (right -left));
-
-        screenWidth = right - left;
-
-        float screenWidthAux = screenWidth;
+    public boolean isWobbleEnabled() {
+        return wobbleEnabled;
+    }
 
-        // Check if a fixed width was set for all children
-        if(fixedChildrenWidth != null) {
-            biggestChildWidth = getPixelFromDip(fixedChildrenWidth);
-        } else {
-            searchBiggestChildWidth();
-        }
 
-        // Check if a fixed height was set for all children
-        if(fixedChildrenHeight != null) {
-            biggestChildHeight = getPixelFromDip(fixedChildrenHeight);
-        } else {
-            searchBiggestChildHeight();
+    /**
+     * Set the loader that renders the images of the children in the background. The grid tells it
+     * which children are laid out, so only their images are rendered, the nearest to the viewport
+     * first, and the pending images of the children that scroll away are cancelled. The children
+     * are bound to their items with {@link ThumbnailLoader#bind}.
+     *
+     * @param thumbnailLoader the loader, or null for not rendering images
+     */
+    public void setThumbnailLoader(ThumbnailLoader thumbnailLoader) {
+        if (this.thumbnailLoader != null) {
+            this.thumbnailLoader.beginUpdate();
+            this.thumbnailLoader.endUpdate(this);
+            this.thumbnailLoader.setManagedByGrid(false);
         }
 
-        columnCount = 0;
-
-        screenWidthAux -= getPaddingRight() + getPaddingLeft();
-
-        // Get the number of columns
-        for (int i = 0; i < getChildCount(); i++) {
-            if (screenWidthAux < biggestChildWidth) {
-                break;
-            }
-
-            columnCount++;
-            screenWidthAux -= biggestChildWidth;
-        }
+        this.thumbnailLoader = thumbnailLoader;
 
-        // If it was set a fixed number of columns programmatically and it isn't bigger than the
-        // number of columns available for the current views, the columnCount is that fixed number
-        if (numberOfColumns > 0 && numberOfColumns < columnCount) {
-            columnCount = numberOfColumns;
+        if (thumbnailLoader != null) {
+            thumbnailLoader.setManagedByGrid(true);
+            updateThumbnails();
         }
+    }
 
-        // Request layout its children at specific positions
-        for (int i = 0; i < getChildCount(); i++) {
-            if (i != dragged) {
-                Point xy = getCoorFromIndex(i);
-                getChildAt(i).layout(xy.x, xy.y, xy.x + biggestChildWidth, xy.y + biggestChildHeight);
-            }
-        }
 
+    public ThumbnailLoader getThumbnailLoader() {
+        return thumbnailLoader;
     }
 
 
     /**
-     * Searches for the child with the biggest width in order to set this size for all the children,
-     * for getting the same number of children in each row
+     * Set if the dragged child is drawn as a snapshot over the grid. The snapshot is taken once
+     * when the drag starts and each move only redraws the area around it, while the child stays in
+     * its cell as a translucent placeholder. Otherwise the child itself is laid out under the
+     * finger in each move. The wobble still redraws the whole grid in every frame, so it is better
+     * disabled with this mode in big grids.
+     *
+     * @param dragShadowEnabled if the dragged child is drawn as a snapshot or not
      */
-    protected void searchBiggestChildWidth() {
-        biggestChildWidth = 0;
-
-        for (int index = 0; index < getChildCount(); index++) {
-            View child = getChildAt(index);
+    public void setDragShadowEnabled(boolean dragShadowEnabled) {
+        cancelTouch();
+        this.dragShadowEnabled = dragShadowEnabled;
 
-            if (biggestChildWidth < child.getMeasuredWidth()) {
-                biggestChildWidth = child.getMeasuredWidth();
-            }
+        if (!dragShadowEnabled) {
+            dragShadow = null;
         }
     }
 
 
     /**
-     * Searches for the child with the biggest measure height in order to set this size for all the
-     * children
+     * Checks if the dragged child is drawn as a snapshot over the grid
+     *
+     * @return if the dragged child is drawn as a snapshot or not
      */
-    protected void searchBiggestChildHeight() {
-        biggestChildHeight = 0;
-
-        for (int index = 0; index < getChildCount(); index++) {
-            View child = getChildAt(index);
-
-            if (biggestChildHeight < child.getMeasuredHeight()) {
-                biggestChildHeight = child.getMeasuredHeight();
-            }
-        }
+    public boolean isDragShadowEnabled() {
+        return dragShadowEnabled;
     }
 
 
     /**
-     * Get the order to draw the children depending on if it has been dragged or not
+     * Set the counters of the performance of the grid, or null for not counting anything
+     *
+     * @param metrics the counters
      */
-    @Override
-    protected int getChildDrawingOrder(int childCount, int i) {
-
-        if (dragged == -1) {
-            return i;
-        } else if (i == childCount - 1) {
-            return dragged;
+    public void setMetrics(GridMetrics metrics) {
+        this.metrics = metrics;
+    }
 
-        } else if (i >= dragged) {
-            return i + 1;
-        }
 
-        return i;
+    public GridMetrics getMetrics() {
+        return metrics;
     }
 
 
     /**
-     * Reorder children
+     * Set how many rows above and below the visible ones are kept laid out (and created in adapter
+     * mode), so they are ready when the user scrolls
+     *
+     * @param offscreenRows number of extra rows at each side of the viewport
      */
-    protected void reorderChildren() {
-        //FIXME: FIGURE OUT HOW TO REORDER CHILDREN WITHOUT REMOVING THEM ALL AND RECONSTRUCTING THE LIST!!!
+    public void setOffscreenRowCount(int offscreenRows) {
+        this.offscreenRows = Math.max(0, offscreenRows);
+        requestLayout();
+    }
 
-        ArrayList<View> children = new ArrayList<View>();
-        for (int i = 0; i < getChildCount(); i++) {
-            getChildAt(i).clearAnimation();
-            children.add(getChildAt(i));
-        }
 
-        removeAllViews();
+    /**
+     * Get how many rows above and below the visible ones are kept laid out
+     *
+     * @return number of extra rows at each side of the viewport
+     */
+    public int getOffscreenRowCount() {
+        return offscreenRows;
+    }
 
-        if (draggedInDeleteZone) { // dragged in deleted zone
-            children.remove(dragged);
 
+    /**
+     * Split the grid in pages side by side, like a launcher, instead of scrolling it vertically.
+     * Each page is as big as the grid and it is divided in cells of the same size, whatever the
+     * size of the children is. The grid scrolls horizontally and snaps to the pages, and only the
+     * current page and its neighbours are laid out (and created in adapter mode). Items spanning
+     * several cells are not supported in this mode.
+     *
+     * @param rowsPerPage    number of rows of each page, or 0 for scrolling vertically again
+     * @param columnsPerPage number of columns of each page, or 0 for scrolling vertically again
+     */
+    public void setPagedMode(int rowsPerPage, int columnsPerPage) {
+        if (rowsPerPage < 0 || columnsPerPage < 0 || (rowsPerPage == 0) != (columnsPerPage == 0)) {
+            throw new IllegalArgumentException("Invalid page size: " + rowsPerPage + "x" + columnsPerPage);
+        }
 
-            if (onRearrangeListener != null) {
-                onRearrangeListener.onRearrange(true, dragged);
-            }
+        cancelTouch();
+        flingScroller.abort();
 
-        } else {
+        this.rowsPerPage = rowsPerPage;
+        this.columnsPerPage = columnsPerPage;
+        pageEdgeZone = getPixelFromDip(PAGE_EDGE_DIP);
+        currentPage = 0;
+        scroll = 0;
+        requestLayout();
+    }
 
-            if (onRearrangeListener != null) {
-                onRearrangeListener.onRearrange(dragged, lastTarget);
-            }
 
-            while (dragged != lastTarget) {
-                if (lastTarget == children.size()) { // dragged and dropped to the right of the last element
-                    children.add(children.remove(dragged));
-                    dragged = lastTarget;
+    /**
+     * Checks if the grid is split in pages side by side
+     *
+     * @return if the grid is in paged mode or not
+     */
+    public boolean isPagedMode() {
+        return rowsPerPage > 0;
+    }
 
-                } else if (dragged < lastTarget) { // shift to the right
-                    Collections.swap(children, dragged, dragged + 1);
-                    dragged++;
 
-                } else if (dragged > lastTarget) { // shift to the left
-                    Collections.swap(children, dragged, dragged - 1);
-                    dragged--;
-                }
-            }
+    /**
+     * Get the number of pages needed for showing all the items
+     *
+     * @return the number of pages, always 1 if the grid isn't in paged mode
+     */
+    public int getPageCount() {
+        if (!isPagedMode()) {
+            return 1;
         }
 
-        for (int i = 0; i < children.size(); i++) {
-            newPositions.set(i, -1);
-            addView(children.get(i));
-        }
+        return GridMath.pageCount(getItemCount(), rowsPerPage * columnsPerPage);
+    }
 
-        if (deleteZone != null) {
-            deleteZone.bringToFront();
-        }
 
-        requestLayout();
+    /**
+     * Get the page that is shown, or where the grid is settling
+     *
+     * @return the current page, always 0 if the grid isn't in paged mode
+     */
+    public int getCurrentPage() {
+        return currentPage;
     }
 
 
+
     /***********************************************************************************************
-     *                     SEARCH FOR CHILDREN AND COORDINATES METHODS                             *
+     *                                       MANAGE CHILDREN                                       *
      **********************************************************************************************/
 
     /**
-     * Gets the index of the child given by the last position of the finger or mouse in the screen
+     * And a new child
      *
-     * @return the index of the child that the user pressed lastly
+     * @param child a new child
      */
-    public int getLastIndex() {
-        return getIndexFromCoor(lastX, lastY);
+    @Override
+    public void addView(View child) {
+        addView(child, -1);
     }
 
 
     /**
-     * Gets the index of this child depending on its coordinates in the layout
+     * Add several children at the end of the grid, with only one layout pass for all of them
      *
-     * @param x x coordinate
-     * @param y y coordinate
-     * @return the index of the view
+     * @param children the new children, in order
      */
-    public int getIndexFromCoor(int x, int y) {
-        int col = getColFromCoor(x);
-        int row = getRowFromCoor(y + scroll);
-
-        if (col == -1 || row == -1) { //touch is between columns or rows
-            return -1;
+    public void addViews(Collection<? extends View> children) {
+        if (adapter != null) {
+            throw new UnsupportedOperationException("addViews(Collection) is not supported when an adapter is set");
         }
 
-        int index = row * columnCount + col;
-
-        if (index >= getChildCount()) {
-            return -1;
+        beginBatch();
+        for (View child : children) {
+            addItemViewInLayout(child);
         }
-
-        return index;
+        endBatch();
     }
 
 
     /**
-     * Gets the number of the column where the child is by its x coordinate
+     * Attach a new child as the last item, without requesting a layout. The layout is requested
+     * when the batch ends.
      *
-     * @param coor x coordinate
-     * @return number of the column
+     * @param child the new child
      */
-    protected int getColFromCoor(int coor) {
-
-        coor -= getPaddingLeft();
-
-        int widthForHorizontalCentering = 0;
+    private void addItemViewInLayout(View child) {
+        addItemViewInLayout(child, child.getLayoutParams());
+    }
 
-        // For centering the children if there isn't room for more children
-        float emptySpaceInGrid = screenWidth - getPaddingLeft() - getPaddingRight()
-                - (biggestChildWidth * columnCount);
 
-        if (centerChildrenInGrid || emptySpaceInGrid < biggestChildWidth) {
-            widthForHorizontalCentering = Math.round(emptySpaceInGrid / 2);
+    /**
+     * Attach a new child as the last item with the given layout params, without requesting a
+     * layout. The layout is requested when the batch ends.
+     *
+     * @param child  the new child
+     * @param params its layout params, converted to the ones of the grid if needed
+     */
+    private void addItemViewInLayout(View child, ViewGroup.LayoutParams params) {
+        if (params == null) {
+            params = generateDefaultLayoutParams();
+        } else if (!checkLayoutParams(params)) {
+            params = generateLayoutParams(params);
         }
 
-        coor -= widthForHorizontalCentering;
-
-        for (int i = 0; coor > 0; i++) {
-            if (coor < biggestChildWidth) {
-                return i;
-            }
-
-            coor -= biggestChildWidth;
-        }
-        return -1;
+        addViewInLayout(child, -1, params, true);
     }
 
 
     /**
-     * Gets the number of the row where the child is by its y coordinate
+     * Insert a child at a position of the grid, with only one layout pass
      *
-     * @param coor y coordinate
-     * @return number of the row
+     * @param child    the new child
+     * @param position the position of the new child, or -1 for adding it as the last item
      */
-    protected int getRowFromCoor(int coor) {
-        coor -= getPaddingTop();
-
-        for (int i = 0; coor > 0; i++) {
-            if (coor < biggestChildHeight) {
-                return i;
-            }
-
-            coor -= biggestChildHeight;
-        }
-        return -1;
+    @Override
+    public void addView(View child, int position) {
+        addView(child, position, child.getLayoutParams());
     }
 
 
-    protected int getTargetFromCoor(int x, int y) {
-        if (getRowFromCoor(y + scroll) == -1) { //touch is between rows
-            return -1;
+    /**
+     * Insert a child with the given layout params, for example for setting its spans, at a
+     * position of the grid. All the other ways of adding a child with layout params, as
+     * addView(View, LayoutParams) or addView(View, int, int), end here.
+     *
+     * @param child    the new child
+     * @param position the position of the new child, or -1 for adding it as the last item
+     * @param params   the layout params of the child
+     */
+    @Override
+    public void addView(View child, int position, ViewGroup.LayoutParams params) {
+        if (adapter != null) {
+            throw new UnsupportedOperationException("addView(View, int, LayoutParams) is not supported when an adapter is set");
         }
 
-        int leftPos = getIndexFromCoor(x - (biggestChildWidth / 4), y);
-        int rightPos = getIndexFromCoor(x + (biggestChildWidth / 4), y);
-
-        if (leftPos == -1 && rightPos == -1) { //touch is in the middle of nowhere
-            return -1;
-
-        } else if (leftPos == rightPos) { //touch is in the middle of a visual
-            return -1;
+        int last = getItemCount();
+        if (position < 0 || position > last) {
+            position = last;
         }
 
-        int target = -1;
-
-        if (rightPos > -1) {
-            target = rightPos;
-
-        } else if (leftPos > -1) {
-            target = leftPos + 1;
-        }
+        beginBatch();
+        addItemViewInLayout(child, params);
 
-        if (dragged < target) {
-            return target - 1;
+        if (position != last) {
+            itemOrder.move(last, position);
         }
 
-        //Toast.makeText(getContext(), "Target: " + target + ".", Toast.LENGTH_SHORT).show();
-        return target;
+        endBatch();
     }
 
 
     /**
-     * Get the coordinates positions of a child given the index of it
+     * Remove a child
      *
-     * @param index of teh child
-     * @return the coordinates of the top left point of the child view
+     * @param index the position in the grid of the child to remove
+     */
+    @Override
+    public void removeViewAt(int index) {
+        if (adapter != null) {
+            throw new UnsupportedOperationException("removeViewAt(int) is not supported when an adapter is set");
+        }
+
+        super.removeViewAt(itemOrder.get(index));
+    }
+
+
+    /**
+     * Remove a child
+     *
+     * @param view the child to remove
+     */
+    @Override
+    public void removeView(View view) {
+        int position = getIndexOf(view);
+
+        if (adapter == null && position != -1) {
+            removeViewAt(position);
+        } else {
+            super.removeView(view);
+        }
+    }
+
+
+    /**
+     * Remove a range of children, with only one layout pass for all of them
+     *
+     * @param start the position in the grid of the first child to remove
+     * @param count number of children to remove
+     */
+    @Override
+    public void removeViews(int start, int count) {
+        if (adapter != null) {
+            throw new UnsupportedOperationException("removeViews(int, int) is not supported when an adapter is set");
+        }
+
+        if (count <= 0) {
+            return;
+        }
+
+        cancelTouch();
+        beginBatch();
+
+        // The order is updated here at once, instead of child by child
+        trackingChildren = false;
+        removeChildrenInLayout(itemOrder.removeRange(start, count));
+        newPositions.subList(start, start + count).clear();
+        trackingChildren = true;
+
+        layoutRequestedInBatch = true;
+        endBatch();
+    }
+
+
+    /**
+     * Detach several children without requesting a layout
+     *
+     * @param childIndexes indexes of the children, in ascending order
+     */
+    private void removeChildrenInLayout(int[] childIndexes) {
+        // Detach the children from the last one, joining the consecutive ones
+        int runEnd = childIndexes.length - 1;
+        for (int i = childIndexes.length - 1; i >= 0; i--) {
+            if (i == 0 || childIndexes[i - 1] != childIndexes[i] - 1) {
+                removeViewsInLayout(childIndexes[i], runEnd - i + 1);
+                runEnd = i - 1;
+            }
+        }
+    }
+
+
+    /**
+     * Replace all the children of the grid, with only one layout pass
+     *
+     * @param children the new children, in order
+     */
+    public void replaceAll(Collection<? extends View> children) {
+        if (adapter != null) {
+            throw new UnsupportedOperationException("replaceAll(Collection) is not supported when an adapter is set");
+        }
+
+        cancelTouch();
+        beginBatch();
+
+        removeAllViewsInLayout();
+        layoutRequestedInBatch = true;
+
+        for (View child : children) {
+            addItemViewInLayout(child);
+        }
+
+        endBatch();
+    }
+
+
+    /**
+     * Start a batch of changes. Until the matching {@link #endBatch()}, the children can be added
+     * and removed without laying out the grid, and all the changes are laid out in one pass when
+     * the outermost batch ends.
+     */
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+
+    /**
+     * End a batch of changes started with {@link #beginBatch()}
+     */
+    public void endBatch() {
+        if (batchDepth == 0) {
+            throw new IllegalStateException("endBatch() called without beginBatch()");
+        }
+
+        batchDepth--;
+
+        if (batchDepth > 0) {
+            return;
+        }
+
+        if (itemsAddedInBatch && deleteZone != null) {
+            deleteZone.bringToFront();
+        }
+
+        if (layoutRequestedInBatch || itemsAddedInBatch) {
+            super.requestLayout();
+            invalidate();
+        }
+
+        layoutRequestedInBatch = false;
+        itemsAddedInBatch = false;
+    }
+
+
+    /**
+     * Inside a batch, the layout is requested only once when the batch ends
+     */
+    @Override
+    public void requestLayout() {
+        if (batchDepth > 0) {
+            layoutRequestedInBatch = true;
+            return;
+        }
+
+        super.requestLayout();
+    }
+
+
+    /**
+     * Remove all children
+     */
+    public void removeAll() {
+        if (adapter != null) {
+            throw new UnsupportedOperationException("removeAll() is not supported when an adapter is set");
+        }
+
+        cancelTouch();
+        super.removeAllViews();
+        invalidate();
+    }
+
+
+    /**
+     * Get the number of items of the grid, both the ones with a view created and the ones
+     * that aren't visible in adapter mode
+     *
+     * @return the number of items
+     */
+    public int getItemCount() {
+        if (adapter != null) {
+            return itemCount;
+        }
+
+        return getChildCount();
+    }
+
+
+    /**
+     * Check if the children are packed by their spans, that is, if any of them takes more than one
+     * cell. Spans are only supported without an adapter and without pages.
+     *
+     * @return true if the children are packed by their spans
+     */
+    protected boolean isSpanMode() {
+        return adapter == null && spannedChildCount > 0 && !isPagedMode();
+    }
+
+
+    /**
+     * Check if the cells of the children can be read from the span layout
+     *
+     * @return true if the children are packed by their spans and the packing is up to date
+     */
+    protected boolean isSpanLayoutReady() {
+        return isSpanMode() && spanLayout.size() == getItemCount();
+    }
+
+
+    /**
+     * Get the view of the item at the given position
+     *
+     * @param position position of the item in the grid
+     * @return the view of the item, or null if it isn't created because it is out of the viewport
+     */
+    public View getItemView(int position) {
+        if (adapter != null) {
+            return activeViews.get(position);
+        }
+
+        return getChildAt(itemOrder.get(position));
+    }
+
+
+    /***********************************************************************************************
+     *                                  MANAGE CHILDREN POSITIONS                                  *
+     **********************************************************************************************/
+
+    /**
+     * Ask the children that changed to measure themselves and compute the measurement of this
+     * layout based on the children.
+     */
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (metrics != null) {
+            metrics.beginMeasure();
+        }
+
+        int widthSize = MeasureSpec.getSize(widthMeasureSpec);
+        int heightSize = MeasureSpec.getSize(heightMeasureSpec);
+
+        applyPendingOrder();
+        updateChildMeasureSpecs(widthSize, heightSize);
+
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+
+            if (child.getVisibility() != GONE) {
+                measureItemView(child);
+            }
+        }
+
+        if (deleteZone != null) {
+            measureChild(deleteZone, widthMeasureSpec, heightMeasureSpec);
+        }
+
+        setMeasuredDimension(widthSize, heightSize);
+
+        if (metrics != null) {
+            metrics.endMeasure();
+        }
+    }
+
+
+    /**
+     * Compute the measure specs for the children when a fixed size was set for them, or when the
+     * grid is in paged mode, so they are measured directly at the size of the cells
+     *
+     * @param widthSize  width of the grid
+     * @param heightSize height of the grid
+     */
+    protected void updateChildMeasureSpecs(int widthSize, int heightSize) {
+        if (isPagedMode()) {
+            fixedChildWidthMeasureSpec = MeasureSpec.makeMeasureSpec(GridMath.pageCellSize(widthSize,
+                    getPaddingLeft(), getPaddingRight(), columnsPerPage), MeasureSpec.EXACTLY);
+            fixedChildHeightMeasureSpec = MeasureSpec.makeMeasureSpec(GridMath.pageCellSize(heightSize,
+                    getPaddingTop(), getPaddingBottom(), rowsPerPage), MeasureSpec.EXACTLY);
+            return;
+        }
+
+        fixedChildWidthMeasureSpec = (fixedChildrenWidth == null) ? -1
+                : MeasureSpec.makeMeasureSpec(getPixelFromDip(fixedChildrenWidth), MeasureSpec.EXACTLY);
+
+        fixedChildHeightMeasureSpec = (fixedChildrenHeight == null) ? -1
+                : MeasureSpec.makeMeasureSpec(getPixelFromDip(fixedChildrenHeight), MeasureSpec.EXACTLY);
+    }
+
+
+    /**
+     * Measure a child only if it asked for a new layout or if its measure specs changed since the
+     * last time it was measured. Without a fixed size, the children are measured without limits
+     * as before.
+     *
+     * @param child the child to measure
+     */
+    protected void measureItemView(View child) {
+        LayoutParams lp = (LayoutParams) child.getLayoutParams();
+
+        int childWidthMeasureSpec = (fixedChildWidthMeasureSpec != -1)
+                ? getSpanMeasureSpec(fixedChildWidthMeasureSpec, lp.columnSpan)
+                : getChildMeasureSpec(MeasureSpec.UNSPECIFIED, getPaddingLeft() + getPaddingRight(), lp.width);
+
+        int childHeightMeasureSpec = (fixedChildHeightMeasureSpec != -1)
+                ? getSpanMeasureSpec(fixedChildHeightMeasureSpec, lp.rowSpan)
+                : getChildMeasureSpec(MeasureSpec.UNSPECIFIED, getPaddingTop() + getPaddingBottom(), lp.height);
+
+        if (!child.isLayoutRequested() && lp.lastWidthMeasureSpec == childWidthMeasureSpec
+                && lp.lastHeightMeasureSpec == childHeightMeasureSpec) {
+            return;
+        }
+
+        child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
+        lp.lastWidthMeasureSpec = childWidthMeasureSpec;
+        lp.lastHeightMeasureSpec = childHeightMeasureSpec;
+
+        recordChildSize(child);
+    }
+
+
+    /**
+     * Pack all the children in the cells by their spans, keeping the dragged child in the cell it is
+     * hovering if there is any
+     */
+    protected void packSpans() {
+        int count = getItemCount();
+
+        if (columnSpanBuffer.length < count) {
+            columnSpanBuffer = new int[count];
+            rowSpanBuffer = new int[count];
+        }
+
+        for (int i = 0; i < count; i++) {
+            LayoutParams lp = (LayoutParams) getItemView(i).getLayoutParams();
+            columnSpanBuffer[i] = lp.columnSpan;
+            rowSpanBuffer[i] = lp.rowSpan;
+        }
+
+        spanLayout.pack(columnCount, columnSpanBuffer, rowSpanBuffer, count);
+
+        if (spanHover != -1 && dragged != -1) {
+            spanLayout.move(dragged, spanHover);
+        }
+    }
+
+
+    /**
+     * Get the measure spec of a child that spans several cells of a fixed size
+     *
+     * @param cellMeasureSpec measure spec of one cell
+     * @param span            number of cells taken by the child
+     * @return the measure spec of the child
+     */
+    private int getSpanMeasureSpec(int cellMeasureSpec, int span) {
+        if (span <= 1) {
+            return cellMeasureSpec;
+        }
+
+        return MeasureSpec.makeMeasureSpec(MeasureSpec.getSize(cellMeasureSpec) * span, MeasureSpec.EXACTLY);
+    }
+
+
+    /**
+     * Manage where to position the children (the ImageViews) in the grid layout.
+     * We find out how many columns are needed to arrange the children's views, attending to the
+     * biggest padding of all the children an using it for all children, in order to have the same
+     * number of columns in all rows.
+     */
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+
+//        Log.e(LOG_TAG, "screen dpi: " + (right -left));
+
+        if (metrics != null) {
+            metrics.beginLayout();
+        }
+
+        screenWidth = right - left;
+        deleteZoneBoundsValid = false;
+
+        // In adapter mode at least one view is needed for knowing the size of the children
+        if (adapter != null && getChildCount() == 0 && itemCount > 0) {
+            obtainView(0);
+        }
+
+        // Check if a fixed width was set for all children
+        if(fixedChildrenWidth != null) {
+            biggestChildWidth = getPixelFromDip(fixedChildrenWidth);
+        } else {
+            searchBiggestChildWidth();
+        }
+
+        // Check if a fixed height was set for all children
+        if(fixedChildrenHeight != null) {
+            biggestChildHeight = getPixelFromDip(fixedChildrenHeight);
+        } else {
+            searchBiggestChildHeight();
+        }
+
+        // If it was set a fixed number of columns programmatically and it isn't bigger than the
+        // number of columns available for the current views, the columnCount is that fixed number
+        columnCount = GridMath.columnCount(screenWidth, getPaddingLeft(), getPaddingRight(),
+                biggestChildWidth, getItemCount(), numberOfColumns);
+
+        // In paged mode the pages are divided in cells of the same size, whatever the size of the
+        // children is
+        if (isPagedMode()) {
+            biggestChildWidth = GridMath.pageCellSize(right - left, getPaddingLeft(), getPaddingRight(), columnsPerPage);
+            biggestChildHeight = GridMath.pageCellSize(bottom - top, getPaddingTop(), getPaddingBottom(), rowsPerPage);
+            columnCount = columnsPerPage;
+        }
+
+        boolean geometryChanged = geometry.update(screenWidth, getPaddingLeft(), getPaddingTop(),
+                getPaddingRight(), biggestChildWidth, biggestChildHeight, columnCount,
+                centerChildrenInGrid || isPagedMode());
+
+        if (geometry.updatePaging(rowsPerPage, right - left)) {
+            geometryChanged = true;
+        }
+
+        if (isPagedMode()) {
+            // Keep showing the same page if the size of the pages changed, or the last one if the
+            // current page doesn't exist any more
+            if (currentPage >= getPageCount()) {
+                changeCurrentPage(getPageCount() - 1);
+            }
+
+            if (geometryChanged && !touching) {
+                flingScroller.abort();
+                scroll = getPageScroll(currentPage);
+            }
+        }
+
+        // Pack the items again if any of them spans several cells and the cells could have changed
+        boolean packingChanged = spansChanged;
+        if (isSpanMode() && (changed || geometryChanged || spansChanged || relayoutAll
+                || spanLayout.size() != getItemCount())) {
+            packSpans();
+            packingChanged = true;
+        }
+        spansChanged = false;
+
+        applyPendingScroll();
+
+        // Settle the scroll if the content changed and now it is out of the limits
+        if (!touching && isOverScrolled()) {
+            wakeScrollDriver();
+        }
+
+        applyScroll();
+
+        if (adapter != null) {
+            layoutAdapterViews();
+            updateThumbnails();
+
+            if (metrics != null) {
+                metrics.endLayout();
+            }
+            return;
+        }
+
+        int firstPosition = getFirstLaidOutPosition();
+        int lastPosition = getLastLaidOutPosition();
+
+        if (changed || geometryChanged || packingChanged || relayoutAll
+                || laidOutItemCount != getItemCount()) {
+            // The cells of all the items may have moved, so all the children are checked
+            layoutItemViews(0, getItemCount() - 1);
+            relayoutAll = false;
+
+        } else {
+            // Only scrolled, so only the children that are in the viewport or that just left it
+            layoutItemViews(Math.min(firstPosition, laidOutFirst), Math.max(lastPosition, laidOutLast));
+        }
+
+        laidOutFirst = firstPosition;
+        laidOutLast = lastPosition;
+        laidOutItemCount = getItemCount();
+        updateThumbnails();
+
+        if (metrics != null) {
+            metrics.endLayout();
+        }
+    }
+
+
+    /**
+     * Request layout the children in a range of positions, if they aren't already in their cells
+     *
+     * @param firstPosition first position to lay out
+     * @param lastPosition  last position to lay out
+     */
+    protected void layoutItemViews(int firstPosition, int lastPosition) {
+        lastPosition = Math.min(lastPosition, getItemCount() - 1);
+
+        for (int i = Math.max(firstPosition, 0); i <= lastPosition; i++) {
+            if (i != dragged) {
+                layoutItemViewIfChanged(getItemView(i), i);
+            }
+        }
+    }
+
+
+    /**
+     * Gets the first position that is laid out: the first visible one minus the offscreen rows
+     *
+     * @return the first position laid out
+     */
+    protected int getFirstLaidOutPosition() {
+        return getFirstPositionInRows(offscreenRows);
+    }
+
+
+    /**
+     * Gets the last position that is laid out: the last visible one plus the offscreen rows
+     *
+     * @return the last position laid out
+     */
+    protected int getLastLaidOutPosition() {
+        return getLastPositionInRows(offscreenRows);
+    }
+
+
+    /**
+     * Gets the first position of the visible rows, or of some rows above them
+     *
+     * @param extraRows number of rows above the visible ones
+     * @return the first position
+     */
+    private int getFirstPositionInRows(int extraRows) {
+        if (isPagedMode()) {
+            // The rows around the visible ones are the neighbour pages
+            return geometry.getFirstPositionInPages(scroll, Math.min(extraRows, 1));
+        }
+
+        if (isSpanLayoutReady() && biggestChildHeight > 0) {
+            // The items reaching the first row can start some rows above it, and the dragged item
+            // can shift the positions by one
+            int firstRow = (scroll - getPaddingTop()) / biggestChildHeight - extraRows
+                    - (spanLayout.getMaxRowSpan() - 1);
+            return Math.max(0, spanLayout.getFirstPositionFromRow(firstRow) - 1);
+        }
+
+        return geometry.getFirstPosition(scroll, extraRows);
+    }
+
+
+    /**
+     * Gets the last position of the visible rows, or of some rows below them
+     *
+     * @param extraRows number of rows below the visible ones
+     * @return the last position
+     */
+    private int getLastPositionInRows(int extraRows) {
+        if (isPagedMode()) {
+            return geometry.getLastPositionInPages(scroll + getWidth(), Math.min(extraRows, 1), getItemCount());
+        }
+
+        if (isSpanLayoutReady() && biggestChildHeight > 0) {
+            int lastRow = (scroll + getHeight() - getPaddingTop()) / biggestChildHeight + extraRows;
+            return Math.min(getItemCount() - 1, spanLayout.getLastPositionBeforeRow(lastRow + 1) + 1);
+        }
+
+        return geometry.getLastPosition(scroll + getHeight(), extraRows, getItemCount());
+    }
+
+
+    /**
+     * Skip drawing the children that are out of the viewport plus the offscreen rows. They keep
+     * the cell where they were laid out for the last time until they come back into the viewport.
+     */
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        boolean outOfViewport;
+
+        if (isPagedMode()) {
+            int viewportLeft = getScrollX();
+            outOfViewport = child.getRight() < viewportLeft - biggestChildWidth
+                    || child.getLeft() > viewportLeft + getWidth() + biggestChildWidth;
+        } else {
+            int margin = biggestChildHeight * Math.max(offscreenRows, 1);
+            int viewportTop = getScrollY();
+            outOfViewport = child.getBottom() < viewportTop - margin
+                    || child.getTop() > viewportTop + getHeight() + margin;
+        }
+
+        if ((outOfViewport || (child.getWidth() == 0 && child.getHeight() == 0))
+                && (draggedChildIndex == -1 || getChildAt(draggedChildIndex) != child)) {
+            return false;
+        }
+
+        if (wobbleAngle == 0) {
+            return super.drawChild(canvas, child, drawingTime);
+        }
+
+        // Rotate the child around the same pivot as the old rotate animation
+        int saveCount = canvas.save();
+        canvas.rotate(wobbleAngle, child.getLeft() + child.getTranslationX() + .8f * child.getWidth(),
+                child.getTop() + child.getTranslationY() + .8f * child.getHeight());
+        boolean more = super.drawChild(canvas, child, drawingTime);
+        canvas.restoreToCount(saveCount);
+
+        return more;
+    }
+
+
+    /**
+     * Searches for the child with the biggest width in order to set this size for all the children,
+     * for getting the same number of children in each row. The widths of the children are counted
+     * as they are measured, added and removed, so there is no need to look at all of them.
+     */
+    protected void searchBiggestChildWidth() {
+        biggestChildWidth = childWidths.max();
+    }
+
+
+    /**
+     * Searches for the child with the biggest measure height in order to set this size for all the
+     * children
+     */
+    protected void searchBiggestChildHeight() {
+        biggestChildHeight = childHeights.max();
+    }
+
+
+    /**
+     * Count the measured size of a child for finding the biggest one, replacing the size counted
+     * the last time it was measured
+     *
+     * @param child the child just measured
+     */
+    protected void recordChildSize(View child) {
+        LayoutParams lp = (LayoutParams) child.getLayoutParams();
+
+        // A child spanning several cells counts the size of one of its cells
+        int width = (child.getMeasuredWidth() + Math.max(lp.columnSpan, 1) - 1) / Math.max(lp.columnSpan, 1);
+        int height = (child.getMeasuredHeight() + Math.max(lp.rowSpan, 1) - 1) / Math.max(lp.rowSpan, 1);
+
+        if (lp.recordedWidth != width) {
+            if (lp.recordedWidth != -1) {
+                childWidths.remove(lp.recordedWidth);
+            }
+            lp.recordedWidth = width;
+            childWidths.add(lp.recordedWidth);
+        }
+
+        if (lp.recordedHeight != height) {
+            if (lp.recordedHeight != -1) {
+                childHeights.remove(lp.recordedHeight);
+            }
+            lp.recordedHeight = height;
+            childHeights.add(lp.recordedHeight);
+        }
+
+        if (lp.recordedColumnSpan != lp.columnSpan || lp.recordedRowSpan != lp.rowSpan) {
+            if (lp.recordedColumnSpan > 1 || lp.recordedRowSpan > 1) {
+                spannedChildCount--;
+            }
+            if (lp.columnSpan > 1 || lp.rowSpan > 1) {
+                spannedChildCount++;
+            }
+
+            lp.recordedColumnSpan = lp.columnSpan;
+            lp.recordedRowSpan = lp.rowSpan;
+            spansChanged = true;
+        }
+    }
+
+
+    /**
+     * Stop counting the size of a child that was removed, and forget its last measure so it is
+     * measured again if it is added back
+     *
+     * @param child the removed child
+     */
+    protected void forgetChildSize(View child) {
+        if (!(child.getLayoutParams() instanceof LayoutParams)) {
+            return;
+        }
+
+        LayoutParams lp = (LayoutParams) child.getLayoutParams();
+        lp.lastWidthMeasureSpec = -1;
+        lp.lastHeightMeasureSpec = -1;
+
+        if (lp.recordedWidth != -1) {
+            childWidths.remove(lp.recordedWidth);
+            lp.recordedWidth = -1;
+        }
+
+        if (lp.recordedHeight != -1) {
+            childHeights.remove(lp.recordedHeight);
+            lp.recordedHeight = -1;
+        }
+
+        if (lp.recordedColumnSpan > 1 || lp.recordedRowSpan > 1) {
+            spannedChildCount--;
+            spansChanged = true;
+        }
+        lp.recordedColumnSpan = 1;
+        lp.recordedRowSpan = 1;
+    }
+
+
+    /**
+     * Get the order to draw the children depending on if it has been dragged or not
+     */
+    @Override
+    protected int getChildDrawingOrder(int childCount, int i) {
+
+        if (draggedChildIndex < 0 || draggedChildIndex >= childCount) {
+            return i;
+        } else if (i == childCount - 1) {
+            return draggedChildIndex;
+
+        } else if (i >= draggedChildIndex) {
+            return i + 1;
+        }
+
+        return i;
+    }
+
+
+    /**
+     * Find out which child is the dragged one before drawing, as the index of the child isn't the
+     * position of the item
+     */
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (dragged == -1 || dragShadowShown) {
+            draggedChildIndex = -1;
+        } else if (adapter == null) {
+            draggedChildIndex = itemOrder.get(dragged);
+        } else {
+            draggedChildIndex = indexOfChild(getItemView(dragged));
+        }
+
+        super.dispatchDraw(canvas);
+
+        if (dragShadowShown) {
+            canvas.drawBitmap(dragShadow, dragShadowBounds.left, dragShadowBounds.top, dragShadowPaint);
+        }
+
+        if (metrics != null) {
+            metrics.onDraw();
+        }
+    }
+
+
+    /**
+     * Reorder children after a drop. The children are never detached: the dragged item is moved in
+     * the order of the items and only the items between its old and its new position are placed
+     * again.
+     */
+    protected void reorderChildren() {
+        if (adapter != null) {
+            reorderAdapterViews();
+            return;
+        }
+
+        if (draggedInDeleteZone) { // dragged in deleted zone
+            getItemView(dragged).clearAnimation();
+            removeViewAt(dragged);
+
+            if (onRearrangeListener != null) {
+                onRearrangeListener.onRearrange(true, dragged);
+            }
+
+            return;
+        }
+
+        int target = Math.min(lastTarget, getItemCount() - 1);
+
+        if (onRearrangeListener != null) {
+            onRearrangeListener.onRearrange(dragged, target);
+        }
+
+        itemOrder.move(dragged, target);
+
+        // With spans, the items after the target can be packed in other cells too
+        int lastPosition = Math.max(dragged, target);
+        if (isSpanLayoutReady()) {
+            lastPosition = Math.max(lastPosition, spanLayout.move(dragged, target));
+        }
+
+        for (int position = Math.min(dragged, target); position <= lastPosition; position++) {
+            View child = getItemView(position);
+            child.clearAnimation();
+            newPositions.set(position, -1);
+            layoutItemView(child, position);
+        }
+
+        invalidate();
+    }
+
+
+    /***********************************************************************************************
+     *                                      SUBMIT LISTS                                           *
+     **********************************************************************************************/
+
+    /**
+     * Update the children to a new list of items, given by their stable ids. The difference with
+     * the current children is computed in a background thread, and then applied in one layout
+     * pass: the children of the removed items are removed, the views of the new items are created
+     * with the factory, and only the visible cells that change are animated. If another list is
+     * submitted before this one is applied, this one is dropped. If a child is being dragged when
+     * the difference is ready, it is applied when the drag ends.
+     *
+     * The id of each child is the {@link LayoutParams#itemId} of its layout params. The children
+     * added without an id are removed.
+     *
+     * @param itemIds the ids of the items, in their new order
+     * @param factory creates the views of the inserted items
+     */
+    public void submitList(List<Long> itemIds, ItemViewFactory factory) {
+        if (adapter != null) {
+            throw new UnsupportedOperationException("submitList(List, ItemViewFactory) is not supported when an adapter is set");
+        }
+
+        long[] newIds = new long[itemIds.size()];
+        for (int i = 0; i < newIds.length; i++) {
+            newIds[i] = itemIds.get(i);
+        }
+
+        diffInBackground(getItemIds(), newIds, factory);
+    }
+
+
+    /**
+     * Get the stable id of the item at a position
+     *
+     * @param position position of the item
+     * @return the id, or {@link #NO_ITEM_ID} if it hasn't any
+     */
+    public long getItemId(int position) {
+        View child = getItemView(position);
+        return (child == null) ? NO_ITEM_ID : ((LayoutParams) child.getLayoutParams()).itemId;
+    }
+
+
+    private long[] getItemIds() {
+        long[] ids = new long[getItemCount()];
+
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = getItemId(i);
+        }
+
+        return ids;
+    }
+
+
+    private static synchronized ExecutorService getDiffExecutor() {
+        // Only one thread, so the lists are diffed in the order they are submitted
+        if (diffExecutor == null) {
+            diffExecutor = Executors.newSingleThreadExecutor();
+        }
+
+        return diffExecutor;
+    }
+
+
+    /**
+     * Diff two lists of ids in the background thread and apply the result in the main thread
+     *
+     * @param oldIds  ids of the current children
+     * @param newIds  ids of the new items
+     * @param factory creates the views of the inserted items
+     */
+    private void diffInBackground(final long[] oldIds, final long[] newIds, final ItemViewFactory factory) {
+        final int generation = ++submitGeneration;
+
+        getDiffExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final ListDiff diff = new ListDiff(oldIds, newIds);
+
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // A newer list was submitted or an adapter was set meanwhile
+                        if (generation != submitGeneration || adapter != null) {
+                            return;
+                        }
+
+                        // The drag isn't interrupted, the list is applied when it ends
+                        if (isDragInProgress()) {
+                            heldDiffDelivery = this;
+                            return;
+                        }
+
+                        long[] currentIds = getItemIds();
+                        if (!Arrays.equals(oldIds, currentIds)) {
+                            // The children changed while diffing, so diff again from them
+                            diffInBackground(currentIds, newIds, factory);
+                            return;
+                        }
+
+                        applyDiff(diff, newIds, factory);
+                    }
+                });
+            }
+        });
+    }
+
+
+    /**
+     * Whether a child is dragged in this grid, was handed off from it or is hovering over it
+     */
+    private boolean isDragInProgress() {
+        return dragged != -1 || dragHandedOff || insertGap != -1;
+    }
+
+
+    /**
+     * Deliver again the diff that arrived during a drag, once the drag ended. If the drop changed
+     * the children, the list is diffed again from them.
+     */
+    private void releaseHeldDiff() {
+        if (heldDiffDelivery != null && !isDragInProgress()) {
+            mainHandler.post(heldDiffDelivery);
+            heldDiffDelivery = null;
+        }
+    }
+
+
+    /**
+     * Apply the difference with a new list of items in one batch. It is called when no child is
+     * being dragged, a diff that arrives during a drag is held until the drag ends.
+     *
+     * @param diff    the difference between the current items and the new ones
+     * @param newIds  ids of the new items
+     * @param factory creates the views of the inserted items
+     */
+    protected void applyDiff(ListDiff diff, long[] newIds, ItemViewFactory factory) {
+        if (diff.isEmpty()) {
+            return;
+        }
+
+        beginBatch();
+
+        trackingChildren = false;
+        removeChildrenInLayout(itemOrder.removeAll(diff.getRemovedPositions()));
+        trackingChildren = true;
+
+        // The new children are appended, and then all the items are put in their new order
+        for (int i = 0; i < newIds.length; i++) {
+            if (diff.getOldPosition(i) == -1) {
+                View child = factory.createItemView(newIds[i]);
+                addItemViewInLayout(child);
+                ((LayoutParams) child.getLayoutParams()).itemId = newIds[i];
+            }
+        }
+
+        itemOrder.permute(diff.getSources());
+
+        newPositions.clear();
+        for (int i = 0; i < newIds.length; i++) {
+            newPositions.add(-1);
+        }
+
+        relayoutAll = true;
+        layoutRequestedInBatch = true;
+        endBatch();
+
+        animateDiff(diff);
+    }
+
+
+    /**
+     * Slide the visible children that changed of cell from their old cells, and fade in the new
+     * ones. The children that keep their cells aren't touched. Packed children aren't animated,
+     * their cells can't be known until they are packed again.
+     *
+     * @param diff the difference applied
+     */
+    protected void animateDiff(ListDiff diff) {
+        if (!attachedToWindow || isSpanMode()) {
+            return;
+        }
+
+        int lastVisible = Math.min(getLastPositionInRows(0), getItemCount() - 1);
+
+        for (int i = getFirstPositionInRows(0); i <= lastVisible; i++) {
+            int oldPosition = diff.getOldPosition(i);
+            View v = getItemView(i);
+
+            if (oldPosition == -1) {
+                v.setAlpha(0);
+                v.animate().alpha(1).setDuration(animT);
+
+            } else if (oldPosition != i) {
+                v.setTranslationX(getLeftFromIndex(oldPosition) - getLeftFromIndex(i));
+                v.setTranslationY(getTopFromIndex(oldPosition) - getTopFromIndex(i));
+                v.animate()
+                        .translationX(0)
+                        .translationY(0)
+                        .setDuration(animT)
+                        .setInterpolator(GAP_INTERPOLATOR);
+            }
+        }
+    }
+
+
+    /***********************************************************************************************
+     *                                       ADAPTER MODE                                          *
+     **********************************************************************************************/
+
+    /**
+     * Create the views of the visible rows (plus the offscreen ones) and recycle the views that are
+     * out of them. The dragged view is kept even if it isn't visible.
+     */
+    protected void layoutAdapterViews() {
+        if (columnCount == 0 || biggestChildHeight == 0) {
+            return;
+        }
+
+        int firstPosition = getFirstLaidOutPosition();
+        int lastPosition = getLastLaidOutPosition();
+
+        // Recycle the views that are out of the viewport
+        for (int i = activeViews.size() - 1; i >= 0; i--) {
+            int position = activeViews.keyAt(i);
+
+            if ((position < firstPosition || position > lastPosition) && position != dragged) {
+                View scrap = activeViews.valueAt(i);
+                activeViews.removeAt(i);
+                recycleView(scrap);
+            }
+        }
+
+        // Create the views that came into the viewport and place all of them
+        for (int position = firstPosition; position <= lastPosition; position++) {
+            View child = activeViews.get(position);
+
+            if (child == null) {
+                child = obtainView(position);
+            }
+
+            if (position != dragged) {
+                layoutItemViewIfChanged(child, position);
+            }
+        }
+
+        laidOutFirst = firstPosition;
+        laidOutLast = lastPosition;
+    }
+
+
+    /**
+     * Get a view for the item at the given position from the adapter, reusing a scrap view of the
+     * same type if there is one, and attach it to the grid
+     *
+     * @param position position of the item
+     * @return the attached and measured view
+     */
+    protected View obtainView(int position) {
+        int viewType = adapter.getItemViewType(position);
+        View scrap = recycleBin.getScrapView(viewType);
+        View child = adapter.getView(position, scrap, this);
+
+        if (scrap != null && child != scrap) {
+            recycleBin.addScrapView(scrap, viewType);
+        }
+
+        ViewGroup.LayoutParams params = child.getLayoutParams();
+        LayoutParams lp;
+
+        if (params == null) {
+            lp = generateDefaultLayoutParams();
+        } else if (!checkLayoutParams(params)) {
+            lp = generateLayoutParams(params);
+        } else {
+            lp = (LayoutParams) params;
+        }
+
+        lp.viewType = viewType;
+
+        addViewInLayout(child, -1, lp, true);
+        measureItemView(child);
+        activeViews.put(position, child);
+
+        return child;
+    }
+
+
+    /**
+     * Detach a view that is no longer needed and keep it for reusing it
+     *
+     * @param scrap the view to recycle
+     */
+    protected void recycleView(View scrap) {
+        scrap.clearAnimation();
+        resetTranslation(scrap);
+        removeViewInLayout(scrap);
+        recycleBin.addScrapView(scrap, ((LayoutParams) scrap.getLayoutParams()).viewType);
+    }
+
+
+    /**
+     * Move the created views to the positions of their items after a drop, instead of rebinding
+     * all of them, and let the listener update the data of the adapter
+     */
+    protected void reorderAdapterViews() {
+        SparseArray<View> movedViews = new SparseArray<View>(activeViews.size());
+        int target = Math.min(lastTarget, itemCount - 1);
+
+        for (int i = 0; i < activeViews.size(); i++) {
+            int position = activeViews.keyAt(i);
+            View child = activeViews.valueAt(i);
+            child.clearAnimation();
+
+            if (draggedInDeleteZone) {
+                if (position == dragged) {
+                    recycleView(child);
+                } else {
+                    movedViews.put(position > dragged ? position - 1 : position, child);
+                }
+
+            } else if (position == dragged) {
+                movedViews.put(target, child);
+
+            } else if (dragged < target && position > dragged && position <= target) {
+                movedViews.put(position - 1, child);
+
+            } else if (target < dragged && position >= target && position < dragged) {
+                movedViews.put(position + 1, child);
+
+            } else {
+                movedViews.put(position, child);
+            }
+        }
+
+        activeViews = movedViews;
+
+        if (onRearrangeListener != null) {
+            if (draggedInDeleteZone) {
+                onRearrangeListener.onRearrange(true, dragged);
+            } else {
+                onRearrangeListener.onRearrange(dragged, target);
+            }
+        }
+
+        itemCount = adapter.getCount();
+        resetNewPositions();
+        requestLayout();
+    }
+
+
+    /**
+     * Recycle all the created views, so they are rebound with the new data in the next layout
+     */
+    protected void onAdapterDataChanged() {
+        cancelTouch();
+
+        for (int i = 0; i < activeViews.size(); i++) {
+            recycleView(activeViews.valueAt(i));
+        }
+
+        activeViews.clear();
+        itemCount = adapter.getCount();
+        resetNewPositions();
+        clampScroll();
+        requestLayout();
+        invalidate();
+    }
+
+
+    /**
+     * Give an empty new position for each item of the adapter
+     */
+    private void resetNewPositions() {
+        newPositions.clear();
+
+        for (int i = 0; i < itemCount; i++) {
+            newPositions.add(-1);
+        }
+    }
+
+
+    /***********************************************************************************************
+     *                     SEARCH FOR CHILDREN AND COORDINATES METHODS                             *
+     **********************************************************************************************/
+
+    /**
+     * Gets the index of the child given by the last position of the finger or mouse in the screen
+     *
+     * @return the index of the child that the user pressed lastly
+     */
+    public int getLastIndex() {
+        return getIndexFromCoor(lastX, lastY);
+    }
+
+
+    /**
+     * Gets the index of this child depending on its coordinates in the layout
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the index of the view
+     */
+    public int getIndexFromCoor(int x, int y) {
+        if (isSpanLayoutReady()) {
+            int displayPosition = spanLayout.getPositionAt(geometry.getRowFromCoor(y + scroll),
+                    geometry.getColFromCoor(x));
+            return (displayPosition == -1) ? -1 : getPositionFromDisplay(displayPosition);
+        }
+
+        return geometry.getIndexFromCoor(x + getContentScrollX(), y + getContentScrollY(), getItemCount());
+    }
+
+
+    /**
+     * Gets the number of the column where the child is by its x coordinate
+     *
+     * @param coor x coordinate
+     * @return number of the column
+     */
+    protected int getColFromCoor(int coor) {
+        return geometry.getColFromCoor(coor);
+    }
+
+
+    /**
+     * Gets the number of the row where the child is by its y coordinate
+     *
+     * @param coor y coordinate
+     * @return number of the row
+     */
+    protected int getRowFromCoor(int coor) {
+        return geometry.getRowFromCoor(coor);
+    }
+
+
+    /**
+     * Gets the position where the dragged child would be dropped, looking at the children a
+     * quarter of a cell to the left and to the right of the touch
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the target position, or -1 if the touch isn't between two children
+     */
+    protected int getTargetFromCoor(int x, int y) {
+        if (metrics != null) {
+            metrics.countHitTest();
+        }
+
+        if (isSpanLayoutReady()) {
+            // The dragged item takes the place of the item under the finger
+            return spanLayout.getPositionAt(geometry.getRowFromCoor(y + scroll), geometry.getColFromCoor(x));
+        }
+
+        return geometry.getTargetFromCoor(x + getContentScrollX(), y + getContentScrollY(), dragged,
+                getItemCount());
+    }
+
+
+    /**
+     * Get the coordinates positions of a child given the index of it
+     *
+     * @param index of teh child
+     * @return the coordinates of the top left point of the child view
      */
     protected Point getCoorFromIndex(int index) {
-        int col = index % columnCount;
-        int row = index / columnCount;
-        int widthForHorizontalCentering = 0;
+        Point xy = new Point();
+        getCoorFromIndex(index, xy);
+        return xy;
+    }
+
+
+    /**
+     * Get the coordinates positions of a child given the index of it, without allocating anything
+     *
+     * @param index    of the child
+     * @param outPoint where the coordinates of the top left point of the child view are written
+     */
+    public void getCoorFromIndex(int index, Point outPoint) {
+        outPoint.x = getLeftFromIndex(index);
+        outPoint.y = getTopFromIndex(index);
+    }
+
+
+    /**
+     * Get the left coordinate of a child given the index of it. The padding of the grid view and
+     * the centering of the children are cached in the geometry of the grid.
+     *
+     * @param index of the child
+     * @return the left coordinate of the child view
+     */
+    protected int getLeftFromIndex(int index) {
+        if (isSpanLayoutReady()) {
+            return geometry.getOriginX() + biggestChildWidth * spanLayout.getColumn(getDisplayPosition(index));
+        }
+
+        return geometry.getLeft(index);
+    }
+
+
+    /**
+     * Get the top coordinate of a child given the index of it. The children are laid out in the
+     * coordinates of the content, the scroll is applied as the scroll of the grid view.
+     *
+     * @param index of the child
+     * @return the top coordinate of the child view
+     */
+    protected int getTopFromIndex(int index) {
+        if (isSpanLayoutReady()) {
+            return geometry.getOriginY() + biggestChildHeight * spanLayout.getRow(getDisplayPosition(index));
+        }
+
+        return geometry.getTop(index);
+    }
+
+
+    /**
+     * Get the width of a child given the index of it, the width of all the cells it spans
+     *
+     * @param index of the child
+     * @return the width of the child view
+     */
+    protected int getWidthFromIndex(int index) {
+        if (isSpanLayoutReady()) {
+            return biggestChildWidth * spanLayout.getColumnSpan(getDisplayPosition(index));
+        }
+
+        return biggestChildWidth;
+    }
+
+
+    /**
+     * Get the height of a child given the index of it, the height of all the cells it spans
+     *
+     * @param index of the child
+     * @return the height of the child view
+     */
+    protected int getHeightFromIndex(int index) {
+        if (isSpanLayoutReady()) {
+            return biggestChildHeight * spanLayout.getRowSpan(getDisplayPosition(index));
+        }
+
+        return biggestChildHeight;
+    }
+
+
+    /**
+     * Place a child in the cell of the given index
+     *
+     * @param child the child view
+     * @param index index of the cell
+     */
+    protected void layoutItemView(View child, int index) {
+        if (metrics != null) {
+            metrics.countChildLayout();
+        }
+
+        int left = getLeftFromIndex(index);
+        int top = getTopFromIndex(index);
+        child.layout(left, top, left + getWidthFromIndex(index), top + getHeightFromIndex(index));
+    }
+
+
+    /**
+     * Place a child in the cell of the given index only if it isn't already there or if it asked
+     * for a new layout
+     *
+     * @param child the child view
+     * @param index index of the cell
+     */
+    protected void layoutItemViewIfChanged(View child, int index) {
+        if (child.isLayoutRequested() || child.getLeft() != getLeftFromIndex(index)
+                || child.getTop() != getTopFromIndex(index) || child.getWidth() != getWidthFromIndex(index)
+                || child.getHeight() != getHeightFromIndex(index)) {
+
+            layoutItemView(child, index);
+        }
+    }
+
+
+    /**
+     * Get the index of a child
+     *
+     * @param child the child of who you want to know the index
+     * @return the index of the child
+     */
+    public int getIndexOf(View child) {
+
+        if (adapter != null) {
+            int activeIndex = activeViews.indexOfValue(child);
+            return (activeIndex < 0) ? -1 : activeViews.keyAt(activeIndex);
+        }
+
+        int childIndex = indexOfChild(child);
+        return (childIndex < 0) ? -1 : itemOrder.positionOf(childIndex);
+    }
+
+
+    /***********************************************************************************************
+     *                                      EVENT HANDLERS                                         *
+     **********************************************************************************************/
+
+    /**
+     * Manage the onClick events. The default behaviour is drag-drop functionality, but it can manage
+     * other functionality if it is set in the Activity a new onItemClick listener
+     *
+     * @param view which was clicked
+     */
+    public void onClick(View view) {
+        if (!enabled || getItemCount() == 0) {
+            return;
+        }
+
+        int index = getLastIndex();
+
+        // Other functionality set with a new onItemClick listener
+        if (onItemClickListener != null && index != -1) {
+            onItemClickListener.onItemClick(null, getItemView(getLastIndex()), getLastIndex(), getLastIndex() / columnCount);
+            return;
+        }
+
+        // Default behaviour: drag-drop
+        if (index != -1) {
+            dragged = index;
+            if (metrics != null) {
+                metrics.beginDrag();
+                startDragFrameCount();
+            }
+            animateMoveAllItems();
+            animateDragged();
+            showDeleteView();
+            wakeScrollDriver();
+
+        }
+
+    }
+
+
+    /**
+     * Manage the onLongClick events. The default behaviour is drag-drop functionality, but it can
+     * manage other functionality if it is set in the Activity a new onItemLongClick listener
+     *
+     * @param view which was long clicked
+     */
+    public boolean onLongClick(View view) {
+        if (!enabled || getItemCount() == 0) {
+            return false;
+        }
+
+        int index = getLastIndex();
+
+        // Other functionality set with a new onItemClick listener
+        if (onItemLongClickListener != null && index != -1) {
+            onItemLongClickListener.onItemLongClick(null, getItemView(getLastIndex()), getLastIndex(),
+                    getLastIndex() / columnCount);
+
+            return true;
+        }
+
+        // Default behaviour: drag-drop
+        if (index != -1) {
+            dragged = index;
+            if (metrics != null) {
+                metrics.beginDrag();
+                startDragFrameCount();
+            }
+            animateMoveAllItems();
+            animateDragged();
+            showDeleteView();
+            wakeScrollDriver();
+            return true;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Manage touch events
+     *
+     * @param view  the view touched
+     * @param event the event for that view
+     * @return managed the touch event or not
+     */
+    public boolean onTouch(View view, MotionEvent event) {
+        try {
+            int action = event.getAction();
+            switch (action & MotionEvent.ACTION_MASK) {
+
+                case MotionEvent.ACTION_DOWN:
+                    enabled = true;
+                    lastX = (int) event.getX();
+                    lastY = (int) event.getY();
+                    touching = true;
+                    flingScroller.abort();
+                    velocityHistory.clear();
+                    velocityHistory.add(event.getEventTime(), isPagedMode() ? event.getX() : event.getY());
+                    break;
+
+                case MotionEvent.ACTION_MOVE:
+                    if (!touching) return false; // event was cancelled
+                    manageMoveEvent(event);
+                    break;
+
+                case MotionEvent.ACTION_UP:
+                    if (!touching) return false; // event was cancelled
+                    velocityHistory.add(event.getEventTime(), isPagedMode() ? event.getX() : event.getY());
+                    manageUpEvent();
+                    break;
+
+                case MotionEvent.ACTION_CANCEL:
+                    cancelTouch();
+                    break;
+            }
+        } catch (Exception e) {
+            Log.e(LOG_TAG, "Error on onTouch. Cancelling current touch: " + e);
+            cancelTouch();
+            return false;
+        }
+
+        if (dragged != -1 || dragHandedOff) {
+            return true;
+        }
+
+        return false;
+    }
+
+
+    private void cancelTouch() {
+        if (dragHandedOff) {
+            dragHandedOff = false;
+            dragCoordinator.cancelDrag();
+            releaseHeldDiff();
+        }
+
+        if (!touching && dragged == -1) return; // Check the drag and the simple onClick cases
+
+        if (dragged != -1) {
+            resetGap();
+            hideDragShadow();
+
+            View draggingView = getItemView(dragged);
+            if (draggingView != null) {
+                layoutItemView(draggingView, dragged);
+                if (draggingView instanceof ImageView) {
+                    ((ImageView) draggingView).setAlpha(255);
+                }
+            }
+        }
+
+        lastTarget = -1;
+        dragged = -1;
+        pageEdgeDwell = 0;
+        hideDeleteView();
+        draggedInDeleteZone = false;
+        touching = false;
+        cancelAnimations();
+        wakeScrollDriver();
+        releaseHeldDiff();
+
+        if (metrics != null) {
+            metrics.endDrag();
+        }
+    }
+
+
+    /**
+     * Manage the move event when dragging a child
+     *
+     * @param event move event
+     */
+    protected void manageMoveEvent(MotionEvent event) {
+        if (dragHandedOff) {
+            // The dragged child is in another grid or between grids
+            lastX = (int) event.getX();
+            lastY = (int) event.getY();
+            dragCoordinator.onDragMove(this, lastX, lastY);
+            return;
+        }
+
+        // In paged mode the grid scrolls horizontally
+        boolean paged = isPagedMode();
+        int delta = paged ? lastX - (int) event.getX() : lastY - (int) event.getY();
+
+        // The drag shadow only redraws the area around it
+        if (!dragShadowShown) {
+            invalidate();
+        }
+
+        // All the batched positions since the previous event count for the velocity of the fling
+        for (int i = 0; i < event.getHistorySize(); i++) {
+            velocityHistory.add(event.getHistoricalEventTime(i),
+                    paged ? event.getHistoricalX(i) : event.getHistoricalY(i));
+        }
+        velocityHistory.add(event.getEventTime(), paged ? event.getX() : event.getY());
+
+        if (dragged != -1) {
+            //change draw location of dragged visual
+            int x = (int) event.getX();
+            int y = (int) event.getY();
+
+            if (isOutOfGrid(x, y) && dragCoordinator != null && adapter == null) {
+                handOffDraggedView(x, y);
+                return;
+            }
+
+            layoutDraggedView(x, y);
+            updateDropTarget(x, y);
+
+        } else {
+            scroll += delta;
+            clampScroll();
+            if (Math.abs(delta) > 2) {
+                enabled = false;
+            }
+            onScrollUpdated();
+        }
+
+        lastX = (int) event.getX();
+        lastY = (int) event.getY();
+        manageDeleteZoneHover(lastX, lastY);
+
+        // The driver stops while the dragged child is away from the edges
+        if (dragged != -1 && needsScrollFrame()) {
+            wakeScrollDriver();
+        }
+    }
+
+
+    /**
+     * Check for a new target under the finger, after it moved or after the content moved under it
+     *
+     * @param x the x coordinate of the finger in the grid view
+     * @param y the y coordinate of the finger in the grid view
+     */
+    protected void updateDropTarget(int x, int y) {
+        int target = getTargetFromCoor(x, y);
+
+        if (lastTarget != target && target != -1) {
+            animateGap(target);
+            lastTarget = target;
+        }
+    }
+
+
+    /**
+     * Place the dragged view under the finger, bigger than the rest of the children
+     *
+     * @param x the x coordinate of the finger in the grid view
+     * @param y the y coordinate of the finger in the grid view
+     */
+    protected void layoutDraggedView(int x, int y) {
+        if (dragShadowShown) {
+            moveDragShadow(x, y);
+            return;
+        }
+
+        int width = getWidthFromIndex(dragged);
+        int height = getHeightFromIndex(dragged);
+        int l = x + getContentScrollX() - (3 * width / 4);
+        int t = y + getContentScrollY() - (3 * height / 4);
+        getItemView(dragged).layout(l, t, l + (width * 3 / 2), t + (height * 3 / 2));
+    }
+
+
+    /**
+     * Reorder the children for the drop, counting how long it takes until it is drawn
+     */
+    private void drop() {
+        if (metrics == null) {
+            reorderChildren();
+            return;
+        }
+
+        metrics.beginDrop();
+        reorderChildren();
+        metrics.endDrop();
+    }
+
+
+    /**
+     * Manage the up event when the user point the finger or mouse up from the screen
+     */
+    protected void manageUpEvent() {
+        if (dragHandedOff) {
+            dragHandedOff = false;
+            touching = false;
+            dragCoordinator.onDrop(this, lastX, lastY);
+            releaseHeldDiff();
+            return;
+        }
+
+        if (dragged != -1) {
+            View v = getItemView(dragged);
+            resetGap();
+            hideDragShadow();
+
+            if (touchUpInDeleteZoneDrop(lastX, lastY)) {
+                draggedInDeleteZone = true;
+                drop();
+
+            } else if (lastTarget != -1) {
+                drop();
+            } else {
+                layoutItemView(v, dragged);
+            }
+
+            if (v instanceof ImageView) {
+                ((ImageView) v).setAlpha(255);
+            }
+
+            lastTarget = -1;
+            dragged = -1;
+            hideDeleteView();
+            draggedInDeleteZone = false;
+
+            if (metrics != null) {
+                metrics.endDrag();
+            }
+
+        } else if (isPagedMode() && (!enabled || isOverScrolled())) {
+            // The finger was swiping the pages, go to the page it was flung to
+            float velocity = -velocityHistory.getVelocity();
+            snapToPage(GridMath.snapPage(scroll, getWidth(), velocity, minimumFlingVelocity, getPageCount()),
+                    velocity);
+
+        } else if (!enabled || isOverScrolled()) {
+            // The finger was scrolling the grid, fling it with the velocity of the finger. The
+            // scroll goes in the opposite direction than the finger.
+            flingScroller.fling(scroll, -velocityHistory.getVelocity());
+        }
+        pageEdgeDwell = 0;
+        touching = false;
+        cancelAnimations();
+        wakeScrollDriver();
+        releaseHeldDiff();
+    }
+
+
+    /***********************************************************************************************
+     *                                       ANIMATIONS                                            *
+     **********************************************************************************************/
+
+    /**
+     * Animate the dragged child
+     */
+    protected void animateDragged() {
+        autoScroller.reset();
+
+        if (dragShadowEnabled) {
+            showDragShadow();
+            return;
+        }
+
+        View v = getItemView(dragged);
+        int width = getWidthFromIndex(dragged);
+        int height = getHeightFromIndex(dragged);
+        int x = getLeftFromIndex(dragged) + width / 2;
+        int y = getTopFromIndex(dragged) + height / 2;
+        int l = x - (3 * width / 4);
+        int t = y - (3 * height / 4);
+        v.layout(l, t, l + (width * 3 / 2), t + (height * 3 / 2));
+
+        AnimationSet animSet = new AnimationSet(true);
+        ScaleAnimation scale = new ScaleAnimation(.667f, 1, .667f, 1, width * 3 / 4, height * 3 / 4);
+        scale.setDuration(animT);
+        AlphaAnimation alpha = new AlphaAnimation(1, .5f);
+        alpha.setDuration(animT);
+
+        animSet.addAnimation(scale);
+        animSet.addAnimation(alpha);
+        animSet.setFillEnabled(true);
+        animSet.setFillAfter(true);
+
+        v.clearAnimation();
+        v.startAnimation(animSet);
+    }
+
+
+    /**
+     * Take the snapshot of the dragged child, 1.5 times bigger than its cell, and draw it over its
+     * cell. The bitmap of the previous drag is reused if it has the same size.
+     */
+    protected void showDragShadow() {
+        View v = getItemView(dragged);
+        int width = v.getWidth() * 3 / 2;
+        int height = v.getHeight() * 3 / 2;
+
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        if (dragShadow == null || dragShadow.getWidth() != width || dragShadow.getHeight() != height) {
+            dragShadow = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } else {
+            dragShadow.eraseColor(Color.TRANSPARENT);
+        }
+
+        Canvas canvas = new Canvas(dragShadow);
+        canvas.scale(1.5f, 1.5f);
+        v.draw(canvas);
+
+        v.setAlpha(PLACEHOLDER_ALPHA);
+        dragShadowPaint.setAlpha(DRAG_SHADOW_ALPHA);
+
+        int left = v.getLeft() + v.getWidth() / 2 - width / 2;
+        int top = v.getTop() + v.getHeight() / 2 - height / 2;
+        dragShadowBounds.set(left, top, left + width, top + height);
+        dragShadowShown = true;
+        invalidate(dragShadowBounds);
+    }
+
+
+    /**
+     * Move the drag shadow under the finger, redrawing only where it was and where it is now
+     *
+     * @param x the x coordinate of the finger in the grid view
+     * @param y the y coordinate of the finger in the grid view
+     */
+    protected void moveDragShadow(int x, int y) {
+        dragShadowDirty.set(dragShadowBounds);
+        dragShadowBounds.offsetTo(x + getContentScrollX() - dragShadowBounds.width() / 2,
+                y + getContentScrollY() - dragShadowBounds.height() / 2);
+        dragShadowDirty.union(dragShadowBounds);
+        invalidate(dragShadowDirty);
+    }
+
+
+    /**
+     * Stop drawing the drag shadow and show the dragged child again
+     */
+    protected void hideDragShadow() {
+        if (!dragShadowShown) {
+            return;
+        }
+
+        dragShadowShown = false;
+        invalidate(dragShadowBounds);
+
+        View v = getItemView(dragged);
+        if (v != null) {
+            v.setAlpha(1);
+        }
+    }
+
+
+    /**
+     * Animate all the children, starting the wobble that rotates them while dragging
+     */
+    private void animateMoveAllItems() {
+        if (wobbleEnabled && attachedToWindow) {
+            wobbleDriver.start();
+        }
+    }
+
+
+    /**
+     * Update the rotation of the wobble and redraw the grid, the rotation is applied only to the
+     * children that are drawn
+     *
+     * @param frameTimeNanos time of the frame
+     * @return if the wobble must go on in the next frame
+     */
+    protected boolean onWobbleFrame(long frameTimeNanos) {
+        if (dragged == -1 || !wobbleEnabled) {
+            wobbleAngle = 0;
+            invalidate();
+            return false;
+        }
+
+        wobbleAngle = wobbleClock.getAngle(frameTimeNanos / 1000000);
+        invalidate();
+        return true;
+    }
+
+
+    /**
+     * Start counting the frames of the drag that just started
+     */
+    private void startDragFrameCount() {
+        if (!attachedToWindow || metricsDriver.isRunning()) {
+            return;
+        }
+
+        lastDragFrameNanos = -1;
+        metricsDriver.start();
+    }
+
+
+    /**
+     * Count the time since the previous frame of the drag, whatever else is animating or not
+     *
+     * @param frameTimeNanos time of the frame
+     * @return if the drag goes on and its frames must still be counted
+     */
+    protected boolean onDragMetricsFrame(long frameTimeNanos) {
+        if (dragged == -1 || metrics == null) {
+            return false;
+        }
+
+        if (lastDragFrameNanos != -1) {
+            metrics.countDragFrame(frameTimeNanos - lastDragFrameNanos);
+        }
+        lastDragFrameNanos = frameTimeNanos;
+        return true;
+    }
+
+
+    /**
+     * Animate to create the gap when the user drag the child in to a new position. Only the
+     * children between the dragged one and the target (and the ones displaced by a previous
+     * target) can move, so only them are visited. They are moved with their translation
+     * properties, and a child already moving is retargeted from where it is.
+     *
+     * @param target the position where the dragged child would be dropped
+     */
+    protected void animateGap(int target) {
+        if (isSpanLayoutReady()) {
+            animateSpanGap(target);
+            return;
+        }
+
+        int first = Math.min(dragged, target);
+        int last = Math.max(dragged, target);
+
+        if (gapFirst != -1) {
+            first = Math.min(first, gapFirst);
+            last = Math.max(last, gapLast);
+        }
+
+        gapFirst = first;
+        gapLast = Math.min(last, getItemCount() - 1);
+
+        for (int i = gapFirst; i <= gapLast; i++) {
+            if (i == dragged) {
+                continue;
+            }
+
+            int newPos = i;
+            if (dragged < target && i >= dragged + 1 && i <= target) {
+                newPos--;
+            } else if (target < dragged && i >= target && i < dragged) {
+                newPos++;
+            }
+
+            int oldPos = i;
+            if (newPositions.get(i) != -1) {
+                oldPos = newPositions.get(i);
+            }
+
+            if (oldPos == newPos) {
+                continue;
+            }
+
+            newPositions.set(i, newPos);
+
+            // Not created in adapter mode, it will be placed when it scrolls into the viewport
+            View v = getItemView(i);
+            if (v == null) {
+                continue;
+            }
+
+            if (metrics != null) {
+                metrics.countGapAnimation();
+            }
+
+            v.animate()
+                    .translationX(getLeftFromIndex(newPos) - getLeftFromIndex(i))
+                    .translationY(getTopFromIndex(newPos) - getTopFromIndex(i))
+                    .setDuration(animT)
+                    .setInterpolator(GAP_INTERPOLATOR);
+        }
+
+        // The placeholder of the drag shadow moves to the gap
+        View placeholder = dragShadowShown ? getItemView(dragged) : null;
+        if (placeholder != null) {
+            placeholder.animate()
+                    .translationX(getLeftFromIndex(target) - getLeftFromIndex(dragged))
+                    .translationY(getTopFromIndex(target) - getTopFromIndex(dragged))
+                    .setDuration(animT)
+                    .setInterpolator(GAP_INTERPOLATOR);
+        }
+    }
+
+
+    /**
+     * Make the gap for the dragged child when the children are packed by their spans. The children
+     * are packed again as if the dragged one was already in the target, so they are laid out in
+     * their new cells and animated from where they were drawn.
+     *
+     * @param target the position of the child being hovered
+     */
+    protected void animateSpanGap(int target) {
+        int from = (spanHover != -1) ? spanHover : dragged;
+        int last = spanLayout.move(from, target);
+        spanHover = target;
+
+        for (int display = Math.min(from, target); display <= last; display++) {
+            // The placeholder of the drag shadow moves too, to the cell it is hovering
+            int position = getPositionFromDisplay(display);
+            if (position == dragged && !dragShadowShown) {
+                continue;
+            }
+
+            View v = getItemView(position);
+            float oldX = v.getLeft() + v.getTranslationX();
+            float oldY = v.getTop() + v.getTranslationY();
+
+            v.animate().cancel();
+            layoutItemView(v, position);
+
+            if (oldX == v.getLeft() && oldY == v.getTop()) {
+                v.setTranslationX(0);
+                v.setTranslationY(0);
+                continue;
+            }
+
+            if (metrics != null) {
+                metrics.countGapAnimation();
+            }
+
+            v.setTranslationX(oldX - v.getLeft());
+            v.setTranslationY(oldY - v.getTop());
+            v.animate()
+                    .translationX(0)
+                    .translationY(0)
+                    .setDuration(animT)
+                    .setInterpolator(GAP_INTERPOLATOR);
+        }
+    }
+
+
+    /**
+     * Pack again the children in their cells before the drag, if the dragged child was hovering
+     * another position
+     */
+    protected void resetSpanGap() {
+        if (spanHover == -1) {
+            return;
+        }
+
+        int first = Math.min(spanHover, dragged);
+        int last = spanLayout.move(spanHover, dragged);
+        spanHover = -1;
+
+        for (int position = first; position <= last; position++) {
+            if (position == dragged && !dragShadowShown) {
+                continue;
+            }
+
+            View v = getItemView(position);
+            resetTranslation(v);
+            layoutItemView(v, position);
+        }
+    }
+
+
+    /**
+     * Get the position where a child is shown while the dragged child hovers another position
+     *
+     * @param position the position of the child
+     * @return the position where it is shown
+     */
+    protected int getDisplayPosition(int position) {
+        if (spanHover == -1 || dragged == -1) {
+            return position;
+        }
+
+        if (position == dragged) {
+            return spanHover;
+        } else if (dragged < spanHover && position > dragged && position <= spanHover) {
+            return position - 1;
+        } else if (spanHover < dragged && position >= spanHover && position < dragged) {
+            return position + 1;
+        }
+
+        return position;
+    }
+
+
+    /**
+     * Get the position of the child shown in a position while the dragged child hovers another one
+     *
+     * @param display the position where the child is shown
+     * @return the position of the child
+     */
+    protected int getPositionFromDisplay(int display) {
+        if (spanHover == -1 || dragged == -1) {
+            return display;
+        }
+
+        if (display == spanHover) {
+            return dragged;
+        } else if (dragged < spanHover && display >= dragged && display < spanHover) {
+            return display + 1;
+        } else if (spanHover < dragged && display > spanHover && display <= dragged) {
+            return display - 1;
+        }
+
+        return display;
+    }
+
+
+    /**
+     * Move back to their cells the children displaced for making the gap, and forget the cells
+     * they were displaced to
+     */
+    protected void resetGap() {
+        resetSpanGap();
+
+        if (gapFirst == -1) {
+            return;
+        }
+
+        for (int i = gapFirst; i <= gapLast && i < getItemCount(); i++) {
+            View v = getItemView(i);
+
+            if (v != null) {
+                resetTranslation(v);
+            }
+
+            // Back in its own cell, the next drag mustn't take it as displaced
+            if (i < newPositions.size()) {
+                newPositions.set(i, -1);
+            }
+        }
+
+        gapFirst = -1;
+        gapLast = -1;
+    }
+
+
+    /**
+     * Stop the gap animation of a child and leave it in its cell
+     *
+     * @param v the child
+     */
+    protected void resetTranslation(View v) {
+        v.animate().cancel();
+        v.setTranslationX(0);
+        v.setTranslationY(0);
+    }
+
+
+    /**
+     * Cancel all the animations
+     */
+    private void cancelAnimations() {
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            child.clearAnimation();
+        }
+    }
+
+
+    /***********************************************************************************************
+     *                                    MANAGE SCROLLING                                         *
+     **********************************************************************************************/
+
+    /**
+     * Scroll to the top of the grid
+     */
+    public void scrollToTop() {
+        if (isPagedMode()) {
+            setCurrentPage(0);
+            return;
+        }
+
+        flingScroller.abort();
+        scroll = 0;
+        onScrollUpdated();
+    }
 
-        // For centering the children if there isn't room for more children
-        float emptySpaceInGrid = screenWidth - getPaddingLeft() - getPaddingRight()
-                - (biggestChildWidth * columnCount);
 
-        if (centerChildrenInGrid || emptySpaceInGrid < biggestChildWidth) {
-            widthForHorizontalCentering = Math.round(emptySpaceInGrid / 2);
+    /**
+     * Scroll to the bottom of the grid
+     */
+    public void scrollToBottom() {
+        if (isPagedMode()) {
+            setCurrentPage(getPageCount() - 1);
+            return;
         }
 
-        // Take care about the padding of each child and the padding of the grid view itself
-        // You return the coordinates of the top left point of the child view
-        return new Point(widthForHorizontalCentering + getPaddingLeft() + biggestChildWidth * col,
-                getPaddingTop() + biggestChildHeight * row - scroll);
+        flingScroller.abort();
+        scroll = Math.max(getMaxScroll(), 0);
+        onScrollUpdated();
     }
 
 
     /**
-     * Get the index of a child
+     * Show a page right away. Without paged mode there is only one page.
      *
-     * @param child the child of who you want to know the index
-     * @return the index of the child
+     * @param page the page
      */
-    public int getIndexOf(View child) {
+    public void setCurrentPage(int page) {
+        flingScroller.abort();
+        changeCurrentPage(Math.max(0, Math.min(page, getPageCount() - 1)));
+        scroll = getPageScroll(currentPage);
+        onScrollUpdated();
+    }
 
-        for (int i = 0; i < getChildCount(); i++) {
-            if (getChildAt(i) == child) {
-                return i;
-            }
-        }
 
-        return -1;
+    /**
+     * Scroll smoothly to a page. Without paged mode there is only one page.
+     *
+     * @param page the page
+     */
+    public void scrollToPage(int page) {
+        snapToPage(Math.max(0, Math.min(page, getPageCount() - 1)), 0);
     }
 
 
-    /***********************************************************************************************
-     *                                      EVENT HANDLERS                                         *
-     **********************************************************************************************/
+    /**
+     * Settle the grid in a page with the spring of the fling, keeping the velocity of the finger
+     * as long as it doesn't make the spring overshoot the page
+     *
+     * @param page     the page
+     * @param velocity velocity of the scroll, in pixels per second
+     */
+    protected void snapToPage(int page, float velocity) {
+        changeCurrentPage(page);
+        flingScroller.snap(scroll, velocity, getPageScroll(page));
+        wakeScrollDriver();
+    }
+
 
     /**
-     * Manage the onClick events. The default behaviour is drag-drop functionality, but it can manage
-     * other functionality if it is set in the Activity a new onItemClick listener
+     * Change the current page, notifying the listener if it is different
      *
-     * @param view which was clicked
+     * @param page the new current page
      */
-    public void onClick(View view) {
-        if (!enabled || getChildCount() == 0) {
+    private void changeCurrentPage(int page) {
+        if (page == currentPage) {
             return;
         }
 
-        int index = getLastIndex();
+        currentPage = page;
 
-        // Other functionality set with a new onItemClick listener
-        if (onItemClickListener != null && index != -1) {
-            onItemClickListener.onItemClick(null, getChildAt(getLastIndex()), getLastIndex(), getLastIndex() / columnCount);
-            return;
+        if (onPageChangeListener != null) {
+            onPageChangeListener.onPageChange(page, getPageCount());
         }
+    }
 
-        // Default behaviour: drag-drop
-        if (index != -1) {
-            dragged = index;
-            animateMoveAllItems();
-            animateDragged();
-            showDeleteView();
 
+    /**
+     * Get the scroll that shows a page
+     *
+     * @param page the page
+     * @return the scroll
+     */
+    protected int getPageScroll(int page) {
+        return isPagedMode() ? page * getWidth() : 0;
+    }
+
+
+    /**
+     * Flip to the next or to the previous page when the dragged child stays for a while at the
+     * edge of the grid
+     *
+     * @param millis time elapsed since the previous frame
+     */
+    protected void flipPageAtEdge(float millis) {
+        int direction = getPageEdgeDirection();
+
+        if (direction == 0) {
+            pageEdgeDwell = 0;
+            return;
         }
 
+        pageEdgeDwell += millis;
+
+        if (pageEdgeDwell >= PAGE_FLIP_DELAY) {
+            pageEdgeDwell = 0;
+            snapToPage(currentPage + direction, 0);
+        }
     }
 
 
     /**
-     * Manage the onLongClick events. The default behaviour is drag-drop functionality, but it can
-     * manage other functionality if it is set in the Activity a new onItemLongClick listener
+     * Get the page the dragged child would flip to if it stays where it is
      *
-     * @param view which was long clicked
+     * @return -1 at the left edge, 1 at the right edge, 0 if it isn't at an edge with a page behind
      */
-    public boolean onLongClick(View view) {
-        if (!enabled || getChildCount() == 0) {
-            return false;
+    private int getPageEdgeDirection() {
+        if (lastX < pageEdgeZone && currentPage > 0) {
+            return -1;
+        } else if (lastX > getWidth() - pageEdgeZone && currentPage < getPageCount() - 1) {
+            return 1;
         }
 
-        int index = getLastIndex();
+        return 0;
+    }
 
-        // Other functionality set with a new onItemClick listener
-        if (onItemLongClickListener != null && index != -1) {
-            onItemLongClickListener.onItemLongClick(null, getChildAt(getLastIndex()), getLastIndex(),
-                    getLastIndex() / columnCount);
 
-            return true;
+    /**
+     * Check if there is something to scroll in the next frame: the dragged child at an edge where
+     * the grid can still scroll or flip, or a fling or a settle in progress
+     *
+     * @return if the scroll driver has to keep running
+     */
+    private boolean needsScrollFrame() {
+        if (dragged != -1 && isPagedMode()) {
+            return getPageEdgeDirection() != 0 || !flingScroller.isFinished();
         }
 
-        // Default behaviour: drag-drop
-        if (index != -1) {
-            dragged = index;
-            animateMoveAllItems();
-            animateDragged();
-            showDeleteView();
-            return true;
+        if (dragged != -1) {
+            float velocity = autoScroller.getVelocity(lastY, getHeight());
+            return (velocity < 0 && scroll > 0) || (velocity > 0 && scroll < getMaxScroll());
         }
 
-        return false;
+        return !touching && !flingScroller.isFinished();
     }
 
 
     /**
-     * Manage touch events
+     * Start scrolling in each frame if the grid is attached and the scroll driver isn't running yet
+     */
+    protected void wakeScrollDriver() {
+        if (!attachedToWindow || scrollDriver.isRunning()) {
+            return;
+        }
+
+        lastFrameTimeNanos = -1;
+        scrollDriverStartNanos = System.nanoTime();
+        scrollDriver.start();
+    }
+
+
+    /**
+     * Move the grid for the auto-scroll while dragging, the fling and the overscroll spring. The
+     * movement is scaled by the time elapsed since the previous frame, so it is the same whatever
+     * the frame rate is.
      *
-     * @param view  the view touched
-     * @param event the event for that view
-     * @return managed the touch event or not
+     * @param frameTimeNanos time of the frame
+     * @return if there is still something to scroll in the next frame
      */
-    public boolean onTouch(View view, MotionEvent event) {
-        try {
-            int action = event.getAction();
-            switch (action & MotionEvent.ACTION_MASK) {
+    protected boolean onScrollFrame(long frameTimeNanos) {
+        long elapsedNanos;
 
-                case MotionEvent.ACTION_DOWN:
-                    enabled = true;
-                    lastX = (int) event.getX();
-                    lastY = (int) event.getY();
-                    touching = true;
-                    break;
+        if (lastFrameTimeNanos == -1) {
+            // The first frame moves for the time since the driver was started
+            elapsedNanos = Math.max(frameTimeNanos - scrollDriverStartNanos, 0);
+        } else {
+            elapsedNanos = frameTimeNanos - lastFrameTimeNanos;
+        }
+        lastFrameTimeNanos = frameTimeNanos;
 
-                case MotionEvent.ACTION_MOVE:
-                    if (!touching) return false; // event was cancelled
-                    manageMoveEvent(event);
-                    break;
+        float ticks = Math.min(elapsedNanos / 1000000f, 4 * SCROLL_TICK) / SCROLL_TICK;
 
-                case MotionEvent.ACTION_UP:
-                    if (!touching) return false; // event was cancelled
-                    manageUpEvent();
-                    break;
+        int oldScroll = scroll;
+
+        if (dragged != -1 && isPagedMode()) {
+            // The pages don't auto-scroll, they flip and settle while dragging
+            flipPageAtEdge(ticks * SCROLL_TICK);
+            settleScroll(ticks);
+
+        } else if (dragged != -1) {
+            int delta = autoScroller.step(lastY, getHeight(), ticks * SCROLL_TICK);
+            if ((delta < 0 && scroll > 0) || (delta > 0 && scroll < getMaxScroll())) {
+                scroll += delta;
+                clampScroll();
             }
-        } catch (Exception e) {
-            Log.e(LOG_TAG, "Error on onTouch. Cancelling current touch: " + e);
-            cancelTouch();
-            return false;
+
+        } else if (!touching) {
+            settleScroll(ticks);
         }
 
-        if (dragged != -1) {
-            return true;
+        if (scroll != oldScroll) {
+            if (dragged != -1) {
+                // The content moves under the finger, but the dragged view stays under it
+                layoutDraggedView(lastX, lastY);
+                updateDropTarget(lastX, lastY);
+            }
+            onScrollUpdated();
         }
 
-        return false;
+        return needsScrollFrame();
     }
 
 
-    private void cancelTouch() {
-        if (!touching && dragged == -1) return; // Check the drag and the simple onClick cases
+    /**
+     * Move the fling one frame. The spring brings the scroll back within its limits, or to the
+     * current page in paged mode.
+     *
+     * @param ticks frame time in scroll ticks
+     */
+    private void settleScroll(float ticks) {
+        int min = 0;
+        int max = Math.max(getMaxScroll(), 0);
+        if (isPagedMode()) {
+            min = max = getPageScroll(currentPage);
+        }
 
-        if (dragged != -1) {
-            View draggingView = getChildAt(dragged);
-            if (draggingView != null) {
-                Point xy = getCoorFromIndex(dragged);
-                draggingView.layout(xy.x, xy.y, xy.x + biggestChildWidth, xy.y + biggestChildHeight);
-                if (draggingView instanceof ImageView) {
-                    ((ImageView) draggingView).setAlpha(255);
-                }
-            }
+        // Without a fling, the spring still brings back an overscroll
+        if (flingScroller.isFinished() && isOverScrolled()) {
+            flingScroller.fling(scroll, 0);
         }
 
-        lastTarget = -1;
-        dragged = -1;
-        hideDeleteView();
-        draggedInDeleteZone = false;
-        touching = false;
-        cancelAnimations();
+        if (!flingScroller.isFinished()) {
+            flingScroller.step(ticks * SCROLL_TICK / 1000f, min, max);
+            scroll = Math.round(flingScroller.getPosition());
+            clampScroll();
+        }
     }
 
 
     /**
-     * Manage the move event when dragging a child
-     *
-     * @param event move event
+     * Apply a new value of the scroll. The content is only offset with the scroll of the view, so
+     * there is no measure or layout pass unless rows that weren't laid out come into the viewport.
      */
-    protected void manageMoveEvent(MotionEvent event) {
-        int delta = lastY - (int) event.getY();
-        invalidate();
+    protected void onScrollUpdated() {
+        applyScroll();
 
-        if (dragged != -1) {
-            //change draw location of dragged visual
-            int x = (int) event.getX();
-            int y = (int) event.getY();
-            int l = x - (3 * biggestChildWidth / 4);
-            int t = y - (3 * biggestChildHeight / 4);
-            getChildAt(dragged).layout(l, t, l + (biggestChildWidth * 3 / 2), t
-                    + (biggestChildHeight * 3 / 2));
-
-            //check for new target hover
-            int target = getTargetFromCoor(x, y);
-            if (lastTarget != target) {
-                if (target != -1) {
-                    animateGap(target);
-                    lastTarget = target;
-                }
-            }
+        int firstVisible = getFirstPositionInRows(0);
+        int lastVisible = getLastPositionInRows(0);
 
-        } else {
-            scroll += delta;
-            clampScroll();
-            if (Math.abs(delta) > 2) {
-                enabled = false;
-            }
+        if (firstVisible < laidOutFirst || lastVisible > laidOutLast) {
             requestLayout();
+        } else if (firstVisible != thumbnailFirst || lastVisible != thumbnailLast) {
+            // Only the distances to the viewport changed
+            updateThumbnails();
         }
-
-        lastX = (int) event.getX();
-        lastY = (int) event.getY();
-        manageDeleteZoneHover(lastX, lastY);
-        lastDelta = delta;
     }
 
 
     /**
-     * Manage the up event when the user point the finger or mouse up from the screen
+     * Tell the thumbnail loader which children are laid out and how far they are from the
+     * viewport, so it renders the nearest images first and cancels the ones out of the grid
      */
-    protected void manageUpEvent() {
-        if (dragged != -1) {
-            View v = getChildAt(dragged);
+    protected void updateThumbnails() {
+        if (thumbnailLoader == null) {
+            return;
+        }
 
-            if (touchUpInDeleteZoneDrop(lastX, lastY)) {
-                draggedInDeleteZone = true;
-                reorderChildren();
+        thumbnailFirst = getFirstPositionInRows(0);
+        thumbnailLast = getLastPositionInRows(0);
 
-            } else if (lastTarget != -1) {
-                reorderChildren();
-            } else {
-                Point xy = getCoorFromIndex(dragged);
-                v.layout(xy.x, xy.y, xy.x + biggestChildWidth, xy.y + biggestChildHeight);
-            }
+        thumbnailLoader.beginUpdate();
 
-            if (v instanceof ImageView) {
-                ((ImageView) v).setAlpha(255);
+        for (int i = Math.max(laidOutFirst, 0); i <= laidOutLast && i < getItemCount(); i++) {
+            View v = getItemView(i);
+
+            if (v != null) {
+                int distance = (i < thumbnailFirst) ? thumbnailFirst - i : Math.max(i - thumbnailLast, 0);
+                thumbnailLoader.request(this, v, distance);
             }
+        }
 
-            lastTarget = -1;
-            dragged = -1;
-            hideDeleteView();
-            draggedInDeleteZone = false;
+        thumbnailLoader.endUpdate(this);
+    }
+
+
+    /**
+     * Offset the content with the scroll of the view, horizontally in paged mode
+     */
+    private void applyScroll() {
+        if (getScrollX() != getContentScrollX() || getScrollY() != getContentScrollY()) {
+            scrollTo(getContentScrollX(), getContentScrollY());
         }
-        touching = false;
-        cancelAnimations();
     }
 
 
-    /***********************************************************************************************
-     *                                       ANIMATIONS                                            *
-     **********************************************************************************************/
+    /**
+     * Get the horizontal scroll of the content, there is only in paged mode
+     *
+     * @return the horizontal scroll
+     */
+    protected int getContentScrollX() {
+        return isPagedMode() ? scroll : 0;
+    }
+
 
     /**
-     * Animate the dragged child
+     * Get the vertical scroll of the content, there is only without paged mode
+     *
+     * @return the vertical scroll
      */
-    protected void animateDragged() {
-        View v = getChildAt(dragged);
-        int x = getCoorFromIndex(dragged).x + biggestChildWidth / 2;
-        int y = getCoorFromIndex(dragged).y + biggestChildHeight / 2;
-        int l = x - (3 * biggestChildWidth / 4);
-        int t = y - (3 * biggestChildHeight / 4);
-        v.layout(l, t, l + (biggestChildWidth * 3 / 2), t + (biggestChildHeight * 3 / 2));
+    protected int getContentScrollY() {
+        return isPagedMode() ? 0 : scroll;
+    }
 
-        AnimationSet animSet = new AnimationSet(true);
-        ScaleAnimation scale = new ScaleAnimation(.667f, 1, .667f, 1, biggestChildWidth * 3 / 4,
-                biggestChildHeight * 3 / 4);
-        scale.setDuration(animT);
-        AlphaAnimation alpha = new AlphaAnimation(1, .5f);
-        alpha.setDuration(animT);
 
-        animSet.addAnimation(createFastRotateAnimation());
-        animSet.addAnimation(scale);
-        animSet.addAnimation(alpha);
-        animSet.setFillEnabled(true);
-        animSet.setFillAfter(true);
+    /**
+     * Checks if the grid is scrolled out of its limits, or out of the current page in paged mode
+     *
+     * @return if the scroll is out of the limits or not
+     */
+    protected boolean isOverScrolled() {
+        if (isPagedMode()) {
+            return scroll != getPageScroll(currentPage);
+        }
 
-        v.clearAnimation();
-        v.startAnimation(animSet);
+        return scroll < 0 || scroll > Math.max(getMaxScroll(), 0);
     }
 
 
     /**
-     * Animate all the children
+     * Keep the scroll within the half of the height of the grid out of its limits (of the width in
+     * paged mode). Anything between that and the limits is brought back by the spring of the fling
+     * when the user isn't touching the grid.
      */
-    private void animateMoveAllItems() {
-        for (int i = 0; i < getChildCount(); i++) {
-            View child = getChildAt(i);
-            child.startAnimation(createFastRotateAnimation());
+    protected void clampScroll() {
+        int clamped = GridMath.clampScroll(scroll, getMaxScroll(), (isPagedMode() ? getWidth() : getHeight()) / 2);
+
+        if (clamped == scroll) {
+            return;
+        }
+
+        scroll = clamped;
+
+        // The fling hit the end of the overscroll, the spring starts from there without velocity
+        if (!touching && !flingScroller.isFinished()) {
+            flingScroller.fling(scroll, 0);
         }
     }
 
 
     /**
-     * Animate to create the gap when the user drag the child in to a new position
+     * Set how fast a fling slows down
      *
-     * @param target
+     * @param decay rate of the exponential decay of the velocity, per second. By default it is
+     *              {@link FlingScroller#DEFAULT_DECAY}
      */
-    protected void animateGap(int target) {
-        for (int i = 0; i < getChildCount(); i++) {
-            View v = getChildAt(i);
+    public void setFlingDecay(float decay) {
+        flingScroller.setDecay(decay);
+    }
 
-            if (i == dragged) {
-                continue;
-            }
 
-            int newPos = i;
-            if (dragged < target && i >= dragged + 1 && i <= target) {
-                newPos--;
-            } else if (target < dragged && i >= target && i < dragged) {
-                newPos++;
-            }
+    /**
+     * Set the spring that brings the grid back when it is scrolled out of its limits
+     *
+     * @param stiffness    stiffness of the spring, per second squared. By default it is
+     *                     {@link FlingScroller#DEFAULT_SPRING_STIFFNESS}
+     * @param dampingRatio 1 for a critically damped spring, less for bouncing back. By default it
+     *                     is {@link FlingScroller#DEFAULT_SPRING_DAMPING_RATIO}
+     */
+    public void setOverScrollSpring(float stiffness, float dampingRatio) {
+        flingScroller.setSpring(stiffness, dampingRatio);
+    }
 
-            int oldPos = i;
-            if (newPositions.get(i) != -1) {
-                oldPos = newPositions.get(i);
-            }
 
-            if (oldPos == newPos) {
-                continue;
-            }
+    /**
+     * Set the size of the zones at the top and the bottom of the grid where a dragged child makes
+     * it scroll. By default they are 64dp.
+     *
+     * @param edgeSize size of each zone, in pixels
+     */
+    public void setAutoScrollEdgeSize(int edgeSize) {
+        autoScroller.setEdgeSize(edgeSize);
+    }
 
-            Point oldXY = getCoorFromIndex(oldPos);
-            Point newXY = getCoorFromIndex(newPos);
-            Point oldOffset = new Point(oldXY.x - v.getLeft(), oldXY.y - v.getTop());
-            Point newOffset = new Point(newXY.x - v.getLeft(), newXY.y - v.getTop());
 
-            AnimationSet animSet = new AnimationSet(true);
-            animSet.addAnimation(createFastRotateAnimation());
-            animSet.addAnimation(createTranslateAnimation(oldOffset, newOffset));
+    /**
+     * Set how fast the grid scrolls with a dragged child at its top or bottom border. It scrolls
+     * slower the farther the child is from the border, and speeds up while it stays there. By
+     * default it is 1500dp per second.
+     *
+     * @param velocity velocity in pixels per second
+     */
+    public void setAutoScrollMaxVelocity(float velocity) {
+        autoScroller.setMaxVelocity(velocity);
+    }
 
-            v.clearAnimation();
-            v.startAnimation(animSet);
 
-            newPositions.set(i, newPos);
-        }
+    /**
+     * Scale the limits of the fling velocity and the auto-scroll to the density of the screen
+     */
+    private void setScaledScrollLimits() {
+        ViewConfiguration configuration = ViewConfiguration.get(getContext());
+        minimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+        flingScroller.setVelocityLimits(configuration.getScaledMinimumFlingVelocity(),
+                configuration.getScaledMaximumFlingVelocity());
+
+        autoScroller.setEdgeSize(getPixelFromDip(AUTO_SCROLL_EDGE_DIP));
+        autoScroller.setMaxVelocity(getPixelFromDip(AUTO_SCROLL_MAX_VELOCITY_DIP));
     }
 
 
     /**
-     * Create a simple translation animation
+     * Get the maximum scroll needed for drawing all the children correctly
      *
-     * @param oldOffset old position of the view
-     * @param newOffset new position of the view
-     * @return the translate animation
+     * @return
      */
-    private Animation createTranslateAnimation(Point oldOffset, Point newOffset) {
-        TranslateAnimation translate = new TranslateAnimation(Animation.ABSOLUTE, oldOffset.x,
-                Animation.ABSOLUTE, newOffset.x,
-                Animation.ABSOLUTE, oldOffset.y,
-                Animation.ABSOLUTE, newOffset.y);
-        translate.setDuration(animT);
-        translate.setFillEnabled(true);
-        translate.setFillAfter(true);
-        translate.setInterpolator(new AccelerateDecelerateInterpolator());
+    protected int getMaxScroll() {
+        if (isPagedMode()) {
+            return (getPageCount() - 1) * getWidth();
+        }
+
+        if (isSpanLayoutReady()) {
+            return GridMath.maxScrollForRows(spanLayout.getRowCount(), biggestChildHeight, getPaddingTop(),
+                    getPaddingBottom(), getHeight());
+        }
 
-        return translate;
+        return GridMath.maxScroll(getItemCount(), columnCount, biggestChildHeight, getPaddingTop(),
+                getPaddingBottom(), getHeight());
     }
 
 
+    /***********************************************************************************************
+     *                                   DRAG BETWEEN GRIDS                                        *
+     **********************************************************************************************/
+
     /**
-     * Create a simple rotation animation
+     * Set the coordinator that moves children between this grid and other ones. It is set by
+     * {@link DragCoordinator#addGrid}.
      *
-     * @return the rotate animation
+     * @param dragCoordinator the coordinator, or null
      */
-    private Animation createFastRotateAnimation() {
-        Animation rotate = new RotateAnimation(-3.0f,
-                3.0f,
-                Animation.RELATIVE_TO_SELF,
-                0.8f,
-                Animation.RELATIVE_TO_SELF,
-                0.8f);
+    void setDragCoordinator(DragCoordinator dragCoordinator) {
+        this.dragCoordinator = dragCoordinator;
+    }
 
-        rotate.setRepeatMode(Animation.REVERSE);
-        rotate.setRepeatCount(Animation.INFINITE);
-        rotate.setDuration(60);
-        rotate.setInterpolator(new AccelerateDecelerateInterpolator());
 
-        return rotate;
+    /**
+     * Checks if some coordinates are out of the bounds of the grid
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return if they are out of the grid or not
+     */
+    protected boolean isOutOfGrid(int x, int y) {
+        return x < 0 || y < 0 || x >= getWidth() || y >= getHeight();
     }
 
 
     /**
-     * Cancel all the animations
+     * Give the dragged child to the coordinator when it leaves the grid. It is removed from the
+     * grid as it is, and the rest of the children close the gap.
+     *
+     * @param x x coordinate of the finger
+     * @param y y coordinate of the finger
      */
-    private void cancelAnimations() {
-        for (int i = 0; i < getChildCount(); i++) {
-            View child = getChildAt(i);
-            child.clearAnimation();
+    protected void handOffDraggedView(int x, int y) {
+        View v = getItemView(dragged);
+        int position = dragged;
+        int width = v.getWidth();
+        int height = v.getHeight();
+
+        resetGap();
+        hideDragShadow();
+        v.clearAnimation();
+        if (v instanceof ImageView) {
+            ((ImageView) v).setAlpha(255);
         }
-    }
 
+        lastTarget = -1;
+        dragged = -1;
+        pageEdgeDwell = 0;
+        hideDeleteView();
+        draggedInDeleteZone = false;
+
+        if (metrics != null) {
+            metrics.endDrag();
+        }
+
+        dragHandedOff = true;
+        removeViewAt(position);
+
+        dragCoordinator.startDrag(this, v, position, width, height, x, y);
+    }
 
-    /***********************************************************************************************
-     *                                    MANAGE SCROLLING                                         *
-     **********************************************************************************************/
 
     /**
-     * Scroll to the top of the grid
+     * Gets the position where a child dragged from another grid would be inserted
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the position of the cell nearest to the finger, or the last position if it is after
+     * the last item
      */
-    public void scrollToTop() {
-        scroll = 0;
+    int getInsertPositionFromCoor(int x, int y) {
+        if (isSpanLayoutReady()) {
+            int row = GridMath.nearestCellFromOffset(y + scroll - geometry.getOriginY(),
+                    geometry.getCellHeight(), spanLayout.getRowCount());
+            int col = GridMath.nearestCellFromOffset(x - geometry.getOriginX(),
+                    geometry.getCellWidth(), geometry.getColumnCount());
+
+            int displayPosition = (row == -1 || col == -1) ? -1 : spanLayout.getPositionAt(row, col);
+            return (displayPosition == -1) ? getItemCount() : getPositionFromDisplay(displayPosition);
+        }
+
+        return geometry.getNearestIndexFromCoor(x + getContentScrollX(), y + getContentScrollY(),
+                getItemCount());
     }
 
 
     /**
-     * Scroll to the bottom of the grid
+     * Animate the children to open a gap where a child dragged from another grid would be
+     * inserted. The children from that position on move one cell forward.
+     *
+     * @param position the position of the gap
      */
-    public void scrollToBottom() {
-        scroll = Integer.MAX_VALUE;
-        clampScroll();
-    }
+    void showInsertGap(int position) {
+        if (position == insertGap) {
+            return;
+        }
 
-    protected void clampScroll() {
-        int stretch = 3, overreach = getHeight() / 2;
-        int max = getMaxScroll();
-        max = Math.max(max, 0);
-
-        if (scroll < -overreach) {
-            scroll = -overreach;
-            lastDelta = 0;
-
-        } else if (scroll > max + overreach) {
-            scroll = max + overreach;
-            lastDelta = 0;
-
-        } else if (scroll < 0) {
-            if (scroll >= -stretch) {
-                scroll = 0;
-            } else if (!touching) {
-                scroll -= scroll / stretch;
+        int first = (insertGap == -1) ? position : Math.min(position, insertGap);
+        int last = Math.min(getItemCount() - 1, getLastLaidOutPosition());
+        insertGap = position;
+
+        // The cells of packed children can't be shifted by one, the child is inserted without a gap
+        if (isSpanLayoutReady()) {
+            return;
+        }
+
+        gapFirst = (gapFirst == -1) ? first : Math.min(gapFirst, first);
+        gapLast = Math.max(gapLast, last);
+
+        for (int i = first; i <= last; i++) {
+            View v = getItemView(i);
+            if (v == null) {
+                continue;
             }
 
-        } else if (scroll > max) {
-            if (scroll <= max + stretch) {
-                scroll = max;
-            } else if (!touching) {
-                scroll += (max - scroll) / stretch;
+            int cell = (i >= position) ? i + 1 : i;
+
+            if (metrics != null) {
+                metrics.countGapAnimation();
             }
+
+            v.animate()
+                    .translationX(getLeftFromIndex(cell) - getLeftFromIndex(i))
+                    .translationY(getTopFromIndex(cell) - getTopFromIndex(i))
+                    .setDuration(animT)
+                    .setInterpolator(GAP_INTERPOLATOR);
         }
     }
 
 
     /**
-     * Get the maximum scroll needed for drawing all the children correctly
-     *
-     * @return
+     * Close the gap opened for a child dragged from another grid
      */
-    protected int getMaxScroll() {
-        int rowCount = (int) Math.ceil((double) getChildCount() / columnCount);
-        return rowCount * biggestChildHeight + getPaddingTop() + getPaddingBottom() - getHeight();
+    void hideInsertGap() {
+        if (insertGap == -1) {
+            return;
+        }
+
+        insertGap = -1;
+        resetGap();
+        releaseHeldDiff();
     }
 
 
@@ -1084,10 +3492,30 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
      * @param deleteZone the delete zone
      */
     public void setDeleteZone(DeleteDropZoneView deleteZone) {
+        if (this.deleteZone != null) {
+            this.deleteZone.removeOnLayoutChangeListener(deleteZoneLayoutListener);
+        }
+
         this.deleteZone = deleteZone;
+        deleteZoneBoundsValid = false;
+
+        if (deleteZone != null) {
+            deleteZone.addOnLayoutChangeListener(deleteZoneLayoutListener);
+        }
     }
 
 
+    /**
+     * Forget the bounds of the delete zone when it is laid out again
+     */
+    private final OnLayoutChangeListener deleteZoneLayoutListener = new OnLayoutChangeListener() {
+        public void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft,
+                                   int oldTop, int oldRight, int oldBottom) {
+            deleteZoneBoundsValid = false;
+        }
+    };
+
+
     /**
      * Creates a hover effect if the user drags a child in to the delete zone
      *
@@ -1109,7 +3537,9 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
 
 
     /**
-     * Checks if the user drops the dragged child into the delete zone
+     * Checks if the user drops the dragged child into the delete zone. The dragged child is
+     * centered under the finger, so its center is compared with the bounds of the delete zone,
+     * which are computed only after the grid or the delete zone are laid out.
      *
      * @param x the current x coordinate of the dragged view
      * @param y the current y coordinate of the dragged view
@@ -1121,22 +3551,34 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
             return false;
         }
 
-        Rect zone = new Rect();
-        deleteZone.getGlobalVisibleRect(zone);
+        if (!deleteZoneBoundsValid) {
+            updateDeleteZoneBounds();
+        }
+
+        return x > deleteZoneBounds.left - deleteZoneSlop && x < deleteZoneBounds.right + deleteZoneSlop
+                && y > deleteZoneBounds.top - deleteZoneSlop && y < deleteZoneBounds.bottom + deleteZoneSlop;
+    }
+
+
+    /**
+     * Compute the bounds of the delete zone in the coordinates of the touch events of the grid
+     */
+    private void updateDeleteZoneBounds() {
+        deleteZone.getLocationInWindow(windowLocation);
+        int left = windowLocation[0];
+        int top = windowLocation[1];
 
-        View draggedChild = getChildAt(dragged);
-        Rect draggedZone = new Rect();
-        draggedChild.getGlobalVisibleRect(draggedZone);
+        getLocationInWindow(windowLocation);
+        left -= windowLocation[0];
+        top -= windowLocation[1];
 
-        int offset = getPixelFromDip(40);
+        deleteZoneBounds.set(left, top, left + deleteZone.getWidth(), top + deleteZone.getHeight());
 
-        if(draggedZone.centerX() > zone.left - offset && draggedZone.centerX()  < zone.right + offset &&
-                draggedZone.centerY() > zone.top - offset && draggedZone.centerY()  < zone.bottom + offset) {
-                deleteZone.smother();
-            return true;
+        if (deleteZoneSlop == -1) {
+            deleteZoneSlop = getPixelFromDip(40);
         }
 
-        return false;
+        deleteZoneBoundsValid = true;
     }
 
     /**
@@ -1144,7 +3586,9 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
      */
     private void showDeleteView() {
         if (deleteZone != null) {
+            deleteZone.smother();
             deleteZone.setVisibility(View.VISIBLE);
+            deleteZoneBoundsValid = false;
         }
     }
 
@@ -1170,6 +3614,119 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
         setOnTouchListener(this);
         super.setOnClickListener(this);
         setOnLongClickListener(this);
+        super.setOnHierarchyChangeListener(childrenListener);
+    }
+
+
+    /**
+     * Listener for the children added and removed, for keeping the count of their sizes. Every
+     * way of removing children goes through it.
+     */
+    private final OnHierarchyChangeListener childrenListener = new OnHierarchyChangeListener() {
+        @Override
+        public void onChildViewAdded(View parent, View child) {
+            onItemViewAdded(child);
+
+            if (onHierarchyChangeListener != null) {
+                onHierarchyChangeListener.onChildViewAdded(parent, child);
+            }
+        }
+
+        @Override
+        public void onChildViewRemoved(View parent, View child) {
+            onItemViewRemoved(child);
+            forgetChildSize(child);
+
+            // A child carried to another grid keeps its image
+            if (thumbnailLoader != null && !dragHandedOff) {
+                thumbnailLoader.unbind(child);
+            }
+
+            if (onHierarchyChangeListener != null) {
+                onHierarchyChangeListener.onChildViewRemoved(parent, child);
+            }
+        }
+    };
+
+
+    /**
+     * Add the new child as the last item, whatever method of the ViewGroup added it
+     *
+     * @param child the new child, already in the array of children
+     */
+    private void onItemViewAdded(View child) {
+        if (adapter != null || !trackingChildren) {
+            return;
+        }
+
+        // A child that was in another grid is measured again, even if its measure specs are the same
+        LayoutParams params = (LayoutParams) child.getLayoutParams();
+        params.lastWidthMeasureSpec = -1;
+        params.lastHeightMeasureSpec = -1;
+
+        firstChildInRemoval = null;
+        itemOrder.insert(indexOfChild(child));
+        newPositions.add(-1);
+
+        if (batchDepth > 0) {
+            itemsAddedInBatch = true;
+        }
+    }
+
+
+    /**
+     * Remove the item of a child, whatever method of the ViewGroup removed it
+     *
+     * @param child the child, still in the array of children
+     */
+    private void onItemViewRemoved(View child) {
+        if (adapter != null || !trackingChildren) {
+            return;
+        }
+
+        // Removing all the children empties the array before telling about each of them
+        if (getChildCount() == 0) {
+            itemOrder.clear();
+            newPositions.clear();
+            firstChildInRemoval = null;
+            childrenInRemoval = 0;
+            return;
+        }
+
+        // The previous children removed are out of the array once their removal is over
+        if (firstChildInRemoval != null && firstChildInRemoval.getParent() != this) {
+            firstChildInRemoval = null;
+            childrenInRemoval = 0;
+        }
+
+        // A range is removed in ascending order, so the children removed before are all below
+        // this one. Removed in descending order, none of them is.
+        int childIndex = indexOfChild(child);
+        int shift = (firstChildInRemoval != null && childIndex > lastChildIndexInRemoval) ? childrenInRemoval : 0;
+
+        int position = itemOrder.removeChild(childIndex - shift);
+        if (position != -1) {
+            newPositions.remove(position);
+        }
+
+        if (firstChildInRemoval == null) {
+            firstChildInRemoval = child;
+            childrenInRemoval = 0;
+        }
+        childrenInRemoval++;
+        lastChildIndexInRemoval = childIndex;
+    }
+
+
+    /**
+     * Set a listener for the children added and removed. The grid keeps its own listener and
+     * forwards the calls to this one.
+     *
+     * @param l the hierarchy change listener
+     */
+    @Override
+    public void setOnHierarchyChangeListener(OnHierarchyChangeListener l) {
+        this.onHierarchyChangeListener = l;
     }
 
 
@@ -1210,6 +3767,266 @@ public class DraggableGridView extends ViewGroup implements View.OnTouchListener
     }
 
 
+    /**
+     * Set the listener for the changes of the current page in paged mode
+     *
+     * @param l the page change listener
+     */
+    public void setOnPageChangeListener(OnPageChangeListener l) {
+        this.onPageChangeListener = l;
+    }
+
+
+    /***********************************************************************************************
+     *                                  SAVE AND RESTORE STATE                                     *
+     **********************************************************************************************/
+
+    /**
+     * Save the order of the items, packed in a few bytes, and the scroll, as the first visible
+     * item or the current page, so they survive a change of orientation. The order isn't saved
+     * in adapter mode, where the adapter keeps it. A restored state that wasn't applied yet is
+     * saved again as it was.
+     */
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+
+        if (pendingOrder != null) {
+            state.order = pendingOrder;
+        } else if (adapter == null) {
+            state.order = itemOrder.pack();
+        }
+
+        if (pendingScrollPosition != -1 || pendingPage != -1) {
+            state.scrollPosition = pendingScrollPosition;
+            state.scrollFraction = pendingScrollFraction;
+            state.page = pendingPage;
+
+        } else if (isPagedMode()) {
+            state.page = currentPage;
+
+        } else if (getItemCount() > 0 && biggestChildHeight > 0) {
+            // The pixels of the scroll change with the orientation, the item at the top doesn't
+            int position = getFirstPositionInRows(0);
+            state.scrollPosition = position;
+            state.scrollFraction = (scroll - getTopFromIndex(position) + getTopFromIndex(0))
+                    / (float) biggestChildHeight;
+        }
+
+        return state;
+    }
+
+
+    /**
+     * Restore the state saved by {@link #onSaveInstanceState()}. The order is applied in one pass
+     * if the children are already added, or when the grid is measured after they are. The scroll
+     * is applied in the next layout, once the cells are known.
+     */
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+
+        SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+
+        // An order of a different number of items is stale, its positions would move other items
+        pendingOrder = savedState.order;
+        if (pendingOrder != null && (adapter != null
+                || (getItemCount() > 0 && ItemOrder.packedSize(pendingOrder) != getItemCount()))) {
+            pendingOrder = null;
+        }
+
+        pendingScrollPosition = savedState.scrollPosition;
+        pendingScrollFraction = savedState.scrollFraction;
+        pendingPage = savedState.page;
+
+        applyPendingOrder();
+        requestLayout();
+    }
+
+
+    /**
+     * Apply a restored order as soon as there are children. It is dropped if it was saved with a
+     * different number of items, if it isn't a valid order, or in adapter mode.
+     */
+    private void applyPendingOrder() {
+        if (pendingOrder == null || getItemCount() == 0) {
+            return;
+        }
+
+        if (adapter == null && ItemOrder.packedSize(pendingOrder) == getItemCount()
+                && itemOrder.unpack(pendingOrder)) {
+            relayoutAll = true;
+        }
+
+        pendingOrder = null;
+    }
+
+
+    /**
+     * Apply a restored scroll once the cells are known
+     */
+    private void applyPendingScroll() {
+        if ((pendingScrollPosition == -1 && pendingPage == -1) || getItemCount() == 0
+                || biggestChildHeight == 0) {
+            return;
+        }
+
+        flingScroller.abort();
+
+        if (isPagedMode()) {
+            if (pendingPage != -1) {
+                changeCurrentPage(Math.min(pendingPage, getPageCount() - 1));
+                scroll = getPageScroll(currentPage);
+            }
+
+        } else if (pendingScrollPosition != -1) {
+            int position = Math.min(pendingScrollPosition, getItemCount() - 1);
+            scroll = getTopFromIndex(position) - getTopFromIndex(0)
+                    + Math.round(pendingScrollFraction * biggestChildHeight);
+            clampScroll();
+        }
+
+        pendingScrollPosition = -1;
+        pendingPage = -1;
+    }
+
+
+    /**
+     * State of the grid saved in the instance state of the activity
+     */
+    static class SavedState extends BaseSavedState {
+
+        byte[] order;
+        int scrollPosition = -1;
+        float scrollFraction = 0;
+        int page = -1;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            order = in.createByteArray();
+            scrollPosition = in.readInt();
+            scrollFraction = in.readFloat();
+            page = in.readInt();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeByteArray(order);
+            out.writeInt(scrollPosition);
+            out.writeFloat(scrollFraction);
+            out.writeInt(page);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+
+    /***********************************************************************************************
+     *                                      LAYOUT PARAMS                                          *
+     **********************************************************************************************/
+
+    @Override
+    protected LayoutParams generateDefaultLayoutParams() {
+        return new LayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayoutParams(getContext(), attrs);
+    }
+
+
+    @Override
+    protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        return new LayoutParams(p);
+    }
+
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayoutParams;
+    }
+
+
+    /**
+     * Layout params of the children of the grid, with the information the grid needs to keep for
+     * each child
+     */
+    public static class LayoutParams extends ViewGroup.LayoutParams {
+
+        // View type given by the adapter, for recycling the view in adapter mode
+        int viewType = 0;
+
+        // Measured size counted for finding the biggest child, -1 if it isn't counted
+        int recordedWidth = -1;
+        int recordedHeight = -1;
+
+        // Measure specs of the last measure of the child, -1 if it must be measured again
+        int lastWidthMeasureSpec = -1;
+        int lastHeightMeasureSpec = -1;
+
+        /**
+         * Number of columns taken by the child. Spans are ignored in adapter mode. After changing
+         * the spans of a child already added, call requestLayout() on it.
+         */
+        public int columnSpan = 1;
+
+        /**
+         * Number of rows taken by the child. Spans are ignored in adapter mode. After changing the
+         * spans of a child already added, call requestLayout() on it.
+         */
+        public int rowSpan = 1;
+
+        /**
+         * Stable id of the item shown by the child, for matching it with the ids of the lists
+         * submitted to the grid
+         */
+        public long itemId = NO_ITEM_ID;
+
+        // Spans counted for packing the children, they are compared for knowing if they changed
+        int recordedColumnSpan = 1;
+        int recordedRowSpan = 1;
+
+        public LayoutParams(Context c, AttributeSet attrs) {
+            super(c, attrs);
+        }
+
+        public LayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source) {
+            super(source);
+
+            if (source instanceof LayoutParams) {
+                columnSpan = ((LayoutParams) source).columnSpan;
+                rowSpan = ((LayoutParams) source).rowSpan;
+                itemId = ((LayoutParams) source).itemId;
+            }
+        }
+    }
+
+
     /***********************************************************************************************
      *                                        UTILITIES                                            *
      **********************************************************************************************/
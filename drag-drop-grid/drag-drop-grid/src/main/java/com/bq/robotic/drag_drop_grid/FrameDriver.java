@@ -0,0 +1,184 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package com.bq.robotic.drag_drop_grid;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.view.Choreographer;
+
+/**
+ * Calls back once per frame while there is something to animate, and stops by itself when the
+ * callback says there is nothing more to do. It is synchronized with the display through the
+ * Choreographer, or with a handler at a similar rate in the old versions of Android without it.
+ */
+abstract class FrameDriver {
+
+    /**
+     * Work to do in each frame
+     */
+    interface Callback {
+
+        /**
+         * Called once per frame while the driver is running
+         *
+         * @param frameTimeNanos time of the frame, in the System.nanoTime() time base
+         * @return true if another frame is needed, false for stopping the driver
+         */
+        boolean doFrame(long frameTimeNanos);
+    }
+
+    protected final Callback callback;
+    private boolean running = false;
+
+
+    protected FrameDriver(Callback callback) {
+        this.callback = callback;
+    }
+
+
+    /**
+     * Create the best driver available in this version of Android
+     *
+     * @param callback work to do in each frame
+     * @return the frame driver
+     */
+    static FrameDriver create(Callback callback) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return new ChoreographerFrameDriver(callback);
+        }
+
+        return new HandlerFrameDriver(callback);
+    }
+
+
+    /**
+     * Start calling back in the next frame, if it isn't already running
+     */
+    void start() {
+        if (running) {
+            return;
+        }
+
+        running = true;
+        scheduleFrame();
+    }
+
+
+    /**
+     * Stop calling back
+     */
+    void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        cancelFrame();
+    }
+
+
+    /**
+     * Checks if the driver is calling back in each frame
+     *
+     * @return if it is running or not
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+
+    protected void onFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+
+        if (callback.doFrame(frameTimeNanos)) {
+            scheduleFrame();
+        } else {
+            running = false;
+        }
+    }
+
+
+    protected abstract void scheduleFrame();
+
+    protected abstract void cancelFrame();
+
+
+    /**
+     * Driver synchronized with the vsync of the display
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerFrameDriver extends FrameDriver implements Choreographer.FrameCallback {
+
+        private final Choreographer choreographer = Choreographer.getInstance();
+
+        ChoreographerFrameDriver(Callback callback) {
+            super(callback);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            onFrame(frameTimeNanos);
+        }
+
+        @Override
+        protected void scheduleFrame() {
+            choreographer.postFrameCallback(this);
+        }
+
+        @Override
+        protected void cancelFrame() {
+            choreographer.removeFrameCallback(this);
+        }
+    }
+
+
+    /**
+     * Driver for the versions of Android without Choreographer
+     */
+    private static class HandlerFrameDriver extends FrameDriver implements Runnable {
+
+        private static final long FRAME_DELAY = 16;
+
+        private final Handler handler = new Handler();
+
+        HandlerFrameDriver(Callback callback) {
+            super(callback);
+        }
+
+        @Override
+        public void run() {
+            onFrame(System.nanoTime());
+        }
+
+        @Override
+        protected void scheduleFrame() {
+            handler.postDelayed(this, FRAME_DELAY);
+        }
+
+        @Override
+        protected void cancelFrame() {
+            handler.removeCallbacks(this);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+package com.bq.robotic.drag_drop_grid;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Counters of where the time goes inside a {@link DraggableGridView}: measure and layout passes,
+ * children laid out, hit tests, gap animations, drops and frames that missed a vsync while
+ * dragging.
+ * The grid only counts when a metrics object is set with
+ * {@link DraggableGridView#setMetrics(GridMetrics)}, and then it also emits Trace sections in
+ * Android 4.3 and newer.
+ *
+ * The counters are updated in the UI thread, so {@link #snapshot()} and {@link #reset()} must be
+ * called from the UI thread too.
+ */
+public class GridMetrics {
+
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 16666667;
+
+    private static final String SECTION_MEASURE = "DraggableGridView#onMeasure";
+    private static final String SECTION_LAYOUT = "DraggableGridView#onLayout";
+    private static final String SECTION_DROP = "DraggableGridView#reorderChildren";
+
+    private long frameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+
+    private int measureCount, layoutCount;
+    private long measureNanos, maxMeasureNanos, layoutNanos, maxLayoutNanos;
+    private long childLayouts;
+    private int lastPassChildLayouts, maxPassChildLayouts;
+    private long hitTests, dragNanos;
+    private int gapAnimations;
+    private int dropCount;
+    private long lastDropLatencyNanos, maxDropLatencyNanos;
+    private int dragFrames, framesOverBudget, droppedFrames;
+
+    // Passes in progress
+    private long measureStart = -1, layoutStart = -1, dropStart = -1, dragStart = -1;
+    private long passStartChildLayouts;
+
+
+    public GridMetrics() {
+    }
+
+
+    /**
+     * Copy the counters of other metrics, for a snapshot
+     */
+    private GridMetrics(GridMetrics other) {
+        frameBudgetNanos = other.frameBudgetNanos;
+        measureCount = other.measureCount;
+        layoutCount = other.layoutCount;
+        measureNanos = other.measureNanos;
+        maxMeasureNanos = other.maxMeasureNanos;
+        layoutNanos = other.layoutNanos;
+        maxLayoutNanos = other.maxLayoutNanos;
+        childLayouts = other.childLayouts;
+        lastPassChildLayouts = other.lastPassChildLayouts;
+        maxPassChildLayouts = other.maxPassChildLayouts;
+        hitTests = other.hitTests;
+        dragNanos = other.getDragNanos();
+        gapAnimations = other.gapAnimations;
+        dropCount = other.dropCount;
+        lastDropLatencyNanos = other.lastDropLatencyNanos;
+        maxDropLatencyNanos = other.maxDropLatencyNanos;
+        dragFrames = other.dragFrames;
+        framesOverBudget = other.framesOverBudget;
+        droppedFrames = other.droppedFrames;
+    }
+
+
+    /**
+     * Set the time between two vsyncs. A frame is counted as over budget when it misses a vsync,
+     * that is, when it takes more than one and a half budgets.
+     *
+     * @param frameBudgetNanos the budget, in nanoseconds
+     */
+    public void setFrameBudgetNanos(long frameBudgetNanos) {
+        this.frameBudgetNanos = frameBudgetNanos;
+    }
+
+
+    /**
+     * Copy the current counters, for exporting them while the grid keeps counting
+     *
+     * @return a copy of the counters
+     */
+    public GridMetrics snapshot() {
+        return new GridMetrics(this);
+    }
+
+
+    /**
+     * Set all the counters to zero
+     */
+    public void reset() {
+        measureCount = layoutCount = 0;
+        measureNanos = maxMeasureNanos = layoutNanos = maxLayoutNanos = 0;
+        childLayouts = 0;
+        lastPassChildLayouts = maxPassChildLayouts = 0;
+        hitTests = dragNanos = 0;
+        gapAnimations = 0;
+        dropCount = 0;
+        lastDropLatencyNanos = maxDropLatencyNanos = 0;
+        dragFrames = framesOverBudget = droppedFrames = 0;
+
+        if (dragStart != -1) {
+            dragStart = System.nanoTime();
+        }
+    }
+
+
+    /***********************************************************************************************
+     *                                  COUNTING, FROM THE GRID                                    *
+     **********************************************************************************************/
+
+    void beginMeasure() {
+        beginSection(SECTION_MEASURE);
+        measureStart = System.nanoTime();
+    }
+
+
+    void endMeasure() {
+        long elapsed = System.nanoTime() - measureStart;
+        measureCount++;
+        measureNanos += elapsed;
+        maxMeasureNanos = Math.max(maxMeasureNanos, elapsed);
+        endSection();
+    }
+
+
+    void beginLayout() {
+        beginSection(SECTION_LAYOUT);
+        layoutStart = System.nanoTime();
+        passStartChildLayouts = childLayouts;
+    }
+
+
+    void endLayout() {
+        long elapsed = System.nanoTime() - layoutStart;
+        layoutCount++;
+        layoutNanos += elapsed;
+        maxLayoutNanos = Math.max(maxLayoutNanos, elapsed);
+
+        lastPassChildLayouts = (int) (childLayouts - passStartChildLayouts);
+        maxPassChildLayouts = Math.max(maxPassChildLayouts, lastPassChildLayouts);
+        endSection();
+    }
+
+
+    void countChildLayout() {
+        childLayouts++;
+    }
+
+
+    void countHitTest() {
+        hitTests++;
+    }
+
+
+    void countGapAnimation() {
+        gapAnimations++;
+    }
+
+
+    void beginDrag() {
+        dragStart = System.nanoTime();
+    }
+
+
+    void endDrag() {
+        if (dragStart != -1) {
+            dragNanos += System.nanoTime() - dragStart;
+            dragStart = -1;
+        }
+    }
+
+
+    /**
+     * Count a frame while dragging. The jitter of the vsync makes intervals a bit longer than the
+     * budget, so the frame only counts as over budget if it missed a whole vsync.
+     *
+     * @param frameIntervalNanos time since the previous frame
+     */
+    void countDragFrame(long frameIntervalNanos) {
+        dragFrames++;
+
+        if (frameIntervalNanos * 2 > frameBudgetNanos * 3) {
+            framesOverBudget++;
+            droppedFrames += (frameIntervalNanos + frameBudgetNanos / 2) / frameBudgetNanos - 1;
+        }
+    }
+
+
+    void beginDrop() {
+        beginSection(SECTION_DROP);
+        dropStart = System.nanoTime();
+    }
+
+
+    void endDrop() {
+        endSection();
+    }
+
+
+    /**
+     * The grid is drawn, the drop in progress is finished when it is on the screen
+     */
+    void onDraw() {
+        if (dropStart == -1) {
+            return;
+        }
+
+        lastDropLatencyNanos = System.nanoTime() - dropStart;
+        maxDropLatencyNanos = Math.max(maxDropLatencyNanos, lastDropLatencyNanos);
+        dropCount++;
+        dropStart = -1;
+    }
+
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void beginSection(String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(name);
+        }
+    }
+
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
+
+    /***********************************************************************************************
+     *                                         GETTERS                                             *
+     **********************************************************************************************/
+
+    public int getMeasureCount() {
+        return measureCount;
+    }
+
+
+    public long getMeasureNanos() {
+        return measureNanos;
+    }
+
+
+    public long getMaxMeasureNanos() {
+        return maxMeasureNanos;
+    }
+
+
+    public int getLayoutCount() {
+        return layoutCount;
+    }
+
+
+    public long getLayoutNanos() {
+        return layoutNanos;
+    }
+
+
+    public long getMaxLayoutNanos() {
+        return maxLayoutNanos;
+    }
+
+
+    /**
+     * @return number of children laid out in all the layout passes and drops
+     */
+    public long getChildLayouts() {
+        return childLayouts;
+    }
+
+
+    /**
+     * @return number of children laid out in the last layout pass
+     */
+    public int getLastPassChildLayouts() {
+        return lastPassChildLayouts;
+    }
+
+
+    public int getMaxPassChildLayouts() {
+        return maxPassChildLayouts;
+    }
+
+
+    public long getHitTests() {
+        return hitTests;
+    }
+
+
+    /**
+     * @return time spent dragging, including the drag in progress
+     */
+    public long getDragNanos() {
+        return (dragStart == -1) ? dragNanos : dragNanos + System.nanoTime() - dragStart;
+    }
+
+
+    /**
+     * @return hit tests for the drop target per second of dragging
+     */
+    public float getHitTestsPerSecond() {
+        long nanos = getDragNanos();
+        return (nanos == 0) ? 0 : hitTests * 1e9f / nanos;
+    }
+
+
+    /**
+     * @return number of gap animations started while dragging
+     */
+    public int getGapAnimations() {
+        return gapAnimations;
+    }
+
+
+    public int getDropCount() {
+        return dropCount;
+    }
+
+
+    /**
+     * @return time from the start of the last drop until the grid was drawn with it
+     */
+    public long getLastDropLatencyNanos() {
+        return lastDropLatencyNanos;
+    }
+
+
+    public long getMaxDropLatencyNanos() {
+        return maxDropLatencyNanos;
+    }
+
+
+    public int getDragFrames() {
+        return dragFrames;
+    }
+
+
+    /**
+     * @return number of frames while dragging that missed at least one vsync
+     */
+    public int getFramesOverBudget() {
+        return framesOverBudget;
+    }
+
+
+    /**
+     * @return number of vsyncs without a new frame while dragging
+     */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+
+    @Override
+    public String toString() {
+        return "GridMetrics{measures=" + measureCount + " (" + measureNanos / 1000 + " us)"
+                + ", layouts=" + layoutCount + " (" + layoutNanos / 1000 + " us)"
+                + ", childLayouts=" + childLayouts + ", lastPassChildLayouts=" + lastPassChildLayouts
+                + ", hitTestsPerSecond=" + getHitTestsPerSecond()
+                + ", gapAnimations=" + gapAnimations
+                + ", drops=" + dropCount + " (last " + lastDropLatencyNanos / 1000 + " us)"
+                + ", framesOverBudget=" + framesOverBudget + "/" + dragFrames
+                + ", droppedFrames=" + droppedFrames + "}";
+    }
+}
@@ -0,0 +1,14 @@
+package com.bq.robotic.drag_drop_grid;
+
+import android.view.View;
+
+public interface ItemViewFactory {
+
+    /**
+     * Callback for creating the view of an item inserted by a list submitted to the grid. It is
+     * called in the main thread.
+     * @param itemId the stable id of the item
+     * @return the view of the item
+     */
+    public abstract View createItemView(long itemId);
+}
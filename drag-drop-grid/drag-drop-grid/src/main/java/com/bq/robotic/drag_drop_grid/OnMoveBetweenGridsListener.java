@@ -0,0 +1,14 @@
+package com.bq.robotic.drag_drop_grid;
+
+public interface OnMoveBetweenGridsListener {
+
+    /**
+     * Callback for when a view is dragged from a grid and dropped in another one
+     * @param fromGrid grid where the view was
+     * @param fromIndex old position in that grid
+     * @param toGrid grid where the view was dropped
+     * @param toIndex new position in that grid
+     */
+    public abstract void onMoveBetweenGrids(DraggableGridView fromGrid, int fromIndex,
+                                            DraggableGridView toGrid, int toIndex);
+}
@@ -0,0 +1,11 @@
+package com.bq.robotic.drag_drop_grid;
+
+public interface OnPageChangeListener {
+
+    /**
+     * Callback for when the current page changes in paged mode
+     * @param page the new current page
+     * @param pageCount the number of pages
+     */
+    public abstract void onPageChange(int page, int pageCount);
+}
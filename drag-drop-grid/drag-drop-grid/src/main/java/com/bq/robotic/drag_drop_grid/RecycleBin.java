@@ -0,0 +1,78 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package com.bq.robotic.drag_drop_grid;
+
+import android.util.SparseArray;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Pool of the views that scrolled out of the viewport of a {@link DraggableGridView} in adapter
+ * mode, grouped by their view type so they can be passed back to the adapter as convertView
+ */
+class RecycleBin {
+
+    private SparseArray<ArrayList<View>> scrapViews = new SparseArray<ArrayList<View>>();
+
+
+    /**
+     * Keep a view that is no longer visible for reusing it later
+     *
+     * @param scrap    the detached view
+     * @param viewType the view type of the item it was showing
+     */
+    void addScrapView(View scrap, int viewType) {
+        ArrayList<View> scrapList = scrapViews.get(viewType);
+
+        if (scrapList == null) {
+            scrapList = new ArrayList<View>();
+            scrapViews.put(viewType, scrapList);
+        }
+
+        scrapList.add(scrap);
+    }
+
+
+    /**
+     * Get a view of the given type to reuse, if there is any
+     *
+     * @param viewType the view type needed
+     * @return a scrap view or null
+     */
+    View getScrapView(int viewType) {
+        ArrayList<View> scrapList = scrapViews.get(viewType);
+
+        if (scrapList == null || scrapList.isEmpty()) {
+            return null;
+        }
+
+        return scrapList.remove(scrapList.size() - 1);
+    }
+
+
+    /**
+     * Forget all the scrap views
+     */
+    void clear() {
+        scrapViews.clear();
+    }
+}
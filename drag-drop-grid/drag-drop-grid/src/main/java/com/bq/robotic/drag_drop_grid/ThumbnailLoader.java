@@ -0,0 +1,444 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+package com.bq.robotic.drag_drop_grid;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.ImageView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Renders the images of the children of a {@link DraggableGridView} in the background and keeps
+ * them in a LRU cache bounded by their size in bytes, keyed by the id of the item.
+ *
+ * The app binds each ImageView to the id of its item with {@link #bind}. When the loader is set
+ * in a grid, the grid decides which images are rendered: only the ones of the children that are
+ * laid out, the nearest to the viewport first, and the pending ones of the children that scroll
+ * away are cancelled. Without a grid, every bound image is rendered in the order it was bound.
+ */
+public class ThumbnailLoader {
+
+    /**
+     * Renders the image of an item. It is called in a background thread.
+     */
+    public interface Renderer {
+
+        /**
+         * Render the image of an item
+         *
+         * @param itemId id of the item
+         * @param width  width of the view, or 0 if it isn't known yet
+         * @param height height of the view, or 0 if it isn't known yet
+         * @return the image, or null if there isn't any
+         */
+        Bitmap render(long itemId, int width, int height);
+    }
+
+
+    /**
+     * Image bound to a view, it is also the request for rendering it
+     */
+    private static class Binding {
+        final ImageView view;
+        final long itemId;
+        int width, height;
+
+        // Guarded by the pending list
+        int priority = Integer.MAX_VALUE;
+        boolean queued = false;
+
+        // Only in the main thread
+        boolean done = false;
+        DraggableGridView owner;
+        int generation;
+
+        Binding(ImageView view, long itemId) {
+            this.view = view;
+            this.itemId = itemId;
+        }
+    }
+
+
+    private static final String LOG_TAG = "ThumbnailLoader";
+    public static final int DEFAULT_PARALLELISM = 2;
+
+    private final Renderer renderer;
+    private final LruCache<Long, Bitmap> cache;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+    private final int parallelism;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread only
+    private final HashMap<View, Binding> bindings = new HashMap<View, Binding>();
+    private int managingGridCount = 0;
+    private int generation = 0;
+
+    // Requests waiting for a worker, and the number of workers running, guarded by the list
+    private final ArrayList<Binding> pending = new ArrayList<Binding>();
+    private int runningWorkers = 0;
+
+    private final Runnable worker = new Runnable() {
+        @Override
+        public void run() {
+            // The priority of the threads of the app isn't changed
+            if (ownExecutor != null) {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            }
+            renderPending();
+        }
+    };
+
+
+    /**
+     * Create a loader with its own background threads
+     *
+     * @param renderer       renders the images in the background
+     * @param cacheSizeBytes maximum size of the cached images, in bytes
+     */
+    public ThumbnailLoader(Renderer renderer, int cacheSizeBytes) {
+        this(renderer, cacheSizeBytes, null, DEFAULT_PARALLELISM);
+    }
+
+
+    /**
+     * Create a loader that renders the images in the given executor
+     *
+     * @param renderer       renders the images in the background
+     * @param cacheSizeBytes maximum size of the cached images, in bytes
+     * @param executor       executor for rendering, or null for creating its own threads
+     * @param parallelism    maximum number of images rendered at the same time
+     */
+    public ThumbnailLoader(Renderer renderer, int cacheSizeBytes, Executor executor, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("The parallelism must be positive: " + parallelism);
+        }
+
+        this.renderer = renderer;
+        this.parallelism = parallelism;
+
+        if (executor == null) {
+            ownExecutor = Executors.newFixedThreadPool(parallelism);
+            this.executor = ownExecutor;
+        } else {
+            ownExecutor = null;
+            this.executor = executor;
+        }
+
+        cache = new LruCache<Long, Bitmap>(cacheSizeBytes) {
+            @Override
+            protected int sizeOf(Long key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+
+    /**
+     * Show the image of an item in a view. If it is cached it is shown right away, otherwise the
+     * view is cleared until the image is rendered. A view can be bound again to another item,
+     * for example when it is reused by an adapter.
+     *
+     * @param view   the view
+     * @param itemId id of the item
+     */
+    public void bind(ImageView view, long itemId) {
+        Binding old = bindings.get(view);
+        if (old != null && old.itemId == itemId) {
+            return;
+        }
+
+        unbind(view);
+
+        Binding binding = new Binding(view, itemId);
+        bindings.put(view, binding);
+
+        Bitmap bitmap = cache.get(itemId);
+        if (bitmap != null) {
+            binding.done = true;
+            view.setImageBitmap(bitmap);
+            return;
+        }
+
+        view.setImageDrawable(null);
+
+        // Without a grid every image is rendered, in order
+        if (managingGridCount == 0) {
+            enqueue(binding, 0);
+        }
+    }
+
+
+    /**
+     * Forget the item bound to a view, cancelling the rendering of its image if it is pending
+     *
+     * @param view the view
+     */
+    public void unbind(View view) {
+        Binding binding = bindings.remove(view);
+
+        if (binding != null) {
+            dequeue(binding);
+        }
+    }
+
+
+    /**
+     * Get the cached image of an item
+     *
+     * @param itemId id of the item
+     * @return the image, or null if it isn't cached
+     */
+    public Bitmap getCachedBitmap(long itemId) {
+        return cache.get(itemId);
+    }
+
+
+    /**
+     * Forget the cached image of an item, for example when it changed. It is rendered again the
+     * next time it is bound.
+     *
+     * @param itemId id of the item
+     */
+    public void invalidate(long itemId) {
+        cache.remove(itemId);
+    }
+
+
+    /**
+     * Forget all the cached images
+     */
+    public void clearCache() {
+        cache.evictAll();
+    }
+
+
+    /**
+     * Cancel all the pending images and stop the threads of the loader, if it created them
+     */
+    public void shutdown() {
+        synchronized (pending) {
+            for (int i = 0; i < pending.size(); i++) {
+                pending.get(i).queued = false;
+            }
+            pending.clear();
+        }
+
+        bindings.clear();
+
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+
+    /***********************************************************************************************
+     *                                    CALLED BY THE GRID                                       *
+     **********************************************************************************************/
+
+    /**
+     * A grid starts or stops deciding which images are rendered
+     *
+     * @param managing if the grid starts managing the images
+     */
+    void setManagedByGrid(boolean managing) {
+        managingGridCount += managing ? 1 : -1;
+    }
+
+
+    /**
+     * Start an update of the children that a grid has laid out
+     */
+    void beginUpdate() {
+        generation++;
+    }
+
+
+    /**
+     * Render the image of a child laid out by a grid, if it isn't already
+     *
+     * @param grid     the grid
+     * @param view     the child
+     * @param priority distance to the viewport, the lower the sooner it is rendered
+     */
+    void request(DraggableGridView grid, View view, int priority) {
+        Binding binding = bindings.get(view);
+        if (binding == null || binding.done) {
+            return;
+        }
+
+        binding.owner = grid;
+        binding.generation = generation;
+        enqueue(binding, priority);
+    }
+
+
+    /**
+     * End an update of the children that a grid has laid out, cancelling the pending images of
+     * the children of that grid that aren't laid out any more
+     *
+     * @param grid the grid
+     */
+    void endUpdate(DraggableGridView grid) {
+        synchronized (pending) {
+            for (int i = pending.size() - 1; i >= 0; i--) {
+                Binding binding = pending.get(i);
+
+                if (binding.owner == grid && binding.generation != generation) {
+                    binding.queued = false;
+                    pending.remove(i);
+                }
+            }
+        }
+    }
+
+
+    /***********************************************************************************************
+     *                                       RENDERING                                             *
+     **********************************************************************************************/
+
+    /**
+     * Queue the rendering of an image, or change its priority if it is already queued, and start
+     * a worker if there is room for another one
+     *
+     * @param binding  the image
+     * @param priority the lower the sooner it is rendered
+     */
+    private void enqueue(Binding binding, int priority) {
+        if (binding.width == 0 || binding.height == 0) {
+            binding.width = Math.max(binding.view.getWidth(), binding.view.getMeasuredWidth());
+            binding.height = Math.max(binding.view.getHeight(), binding.view.getMeasuredHeight());
+        }
+
+        boolean startWorker = false;
+
+        synchronized (pending) {
+            binding.priority = priority;
+
+            if (!binding.queued) {
+                binding.queued = true;
+                pending.add(binding);
+            }
+
+            if (runningWorkers < parallelism) {
+                runningWorkers++;
+                startWorker = true;
+            }
+        }
+
+        if (startWorker) {
+            executor.execute(worker);
+        }
+    }
+
+
+    /**
+     * Remove an image from the queue if it is waiting there
+     *
+     * @param binding the image
+     */
+    private void dequeue(Binding binding) {
+        synchronized (pending) {
+            if (binding.queued) {
+                binding.queued = false;
+                pending.remove(binding);
+            }
+        }
+    }
+
+
+    /**
+     * Render the pending images, the one with the lowest priority first, until there isn't any.
+     * It runs in the background.
+     */
+    private void renderPending() {
+        while (true) {
+            Binding binding = null;
+
+            synchronized (pending) {
+                int best = -1;
+                for (int i = 0; i < pending.size(); i++) {
+                    if (best == -1 || pending.get(i).priority < pending.get(best).priority) {
+                        best = i;
+                    }
+                }
+
+                if (best == -1) {
+                    runningWorkers--;
+                    return;
+                }
+
+                binding = pending.remove(best);
+                binding.queued = false;
+            }
+
+            Bitmap bitmap = cache.get(binding.itemId);
+
+            if (bitmap == null) {
+                try {
+                    bitmap = renderer.render(binding.itemId, binding.width, binding.height);
+                } catch (RuntimeException e) {
+                    Log.e(LOG_TAG, "Error rendering the image of the item " + binding.itemId + ": " + e);
+                }
+
+                if (bitmap != null) {
+                    cache.put(binding.itemId, bitmap);
+                }
+            }
+
+            if (bitmap != null) {
+                deliver(binding, bitmap);
+            }
+        }
+    }
+
+
+    /**
+     * Show a rendered image in the main thread, if the view is still bound to the same item
+     *
+     * @param binding the image
+     * @param bitmap  the rendered image
+     */
+    private void deliver(final Binding binding, final Bitmap bitmap) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (bindings.get(binding.view) != binding) {
+                    return;
+                }
+
+                binding.done = true;
+                binding.view.setImageBitmap(bitmap);
+            }
+        });
+    }
+}
@@ -0,0 +1,188 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+/**
+ * Auto-scroll of the grid while a child is dragged near one of its edges. The velocity grows
+ * with how deep the finger is in the edge, and ramps up with the time it stays there, so a quick
+ * pass over the edge barely scrolls and holding the finger at the border scrolls at full speed.
+ * It is stepped with the real time between frames, and the fractions of pixel are carried to the
+ * next frame, so slow speeds still scroll smoothly at any frame rate.
+ */
+public class EdgeAutoScroller {
+
+    public static final float DEFAULT_RAMP_TIME = 500f;
+
+    private float edgeSize = 0;
+    private float maxVelocity = 0;
+    private float rampTime = DEFAULT_RAMP_TIME;
+
+    private float dwell = 0;
+    private float remainder = 0;
+    private float direction = 0;
+
+
+    /**
+     * Set the size of the zones at both edges where the grid auto-scrolls
+     *
+     * @param edgeSize size of each zone, in pixels
+     */
+    public void setEdgeSize(float edgeSize) {
+        if (edgeSize < 0) {
+            throw new IllegalArgumentException("The edge size can't be negative: " + edgeSize);
+        }
+
+        this.edgeSize = edgeSize;
+    }
+
+
+    public float getEdgeSize() {
+        return edgeSize;
+    }
+
+
+    /**
+     * Set the velocity with the finger at the border of the grid, after the ramp time
+     *
+     * @param maxVelocity velocity in pixels per second
+     */
+    public void setMaxVelocity(float maxVelocity) {
+        if (maxVelocity < 0) {
+            throw new IllegalArgumentException("The velocity can't be negative: " + maxVelocity);
+        }
+
+        this.maxVelocity = maxVelocity;
+    }
+
+
+    public float getMaxVelocity() {
+        return maxVelocity;
+    }
+
+
+    /**
+     * Set the time the finger has to stay in an edge until the velocity isn't limited by the ramp
+     *
+     * @param rampTime time in milliseconds, 0 for scrolling at full speed from the start
+     */
+    public void setRampTime(float rampTime) {
+        if (rampTime < 0) {
+            throw new IllegalArgumentException("The ramp time can't be negative: " + rampTime);
+        }
+
+        this.rampTime = rampTime;
+    }
+
+
+    public float getRampTime() {
+        return rampTime;
+    }
+
+
+    /**
+     * Forget the time in the edge, for a new drag
+     */
+    public void reset() {
+        dwell = 0;
+        remainder = 0;
+        direction = 0;
+    }
+
+
+    /**
+     * Get the velocity for a position of the finger, without the ramp
+     *
+     * @param position coordinate of the finger along the scroll axis, from the start of the grid
+     * @param length   size of the grid along the scroll axis
+     * @return velocity in pixels per second, negative towards the start
+     */
+    public float getVelocity(float position, float length) {
+        // In a grid smaller than both zones, they split it
+        float edge = Math.min(edgeSize, length / 2);
+        if (edge <= 0) {
+            return 0;
+        }
+
+        float proximity;
+        if (position < edge) {
+            proximity = -(edge - position) / edge;
+        } else if (position > length - edge) {
+            proximity = (position - (length - edge)) / edge;
+        } else {
+            return 0;
+        }
+
+        // Out of the grid it goes on at the full speed
+        proximity = Math.max(-1, Math.min(1, proximity));
+
+        return maxVelocity * proximity * Math.abs(proximity);
+    }
+
+
+    /**
+     * Integral of the ramp from the time the finger entered the edge
+     *
+     * @param dwell time in the edge, in milliseconds
+     * @return the time weighted by the ramp, in milliseconds
+     */
+    private float rampedTime(float dwell) {
+        if (dwell >= rampTime) {
+            return dwell - rampTime / 2;
+        }
+
+        return dwell * dwell / (2 * rampTime);
+    }
+
+
+    /**
+     * Advance one frame
+     *
+     * @param position coordinate of the finger along the scroll axis, from the start of the grid
+     * @param length   size of the grid along the scroll axis
+     * @param millis   time since the previous frame
+     * @return pixels to scroll in this frame, negative towards the start
+     */
+    public int step(float position, float length, float millis) {
+        float velocity = getVelocity(position, length);
+
+        // The ramp starts again when the finger leaves the edge or goes to the other one
+        if (Math.signum(velocity) != direction) {
+            reset();
+            direction = Math.signum(velocity);
+        }
+
+        if (velocity == 0) {
+            return 0;
+        }
+
+        // The ramp is integrated over the frame, so the distance doesn't depend on the frame rate
+        float rampedMillis = rampedTime(dwell + millis) - rampedTime(dwell);
+        dwell += millis;
+
+        float distance = velocity * rampedMillis / 1000f + remainder;
+        int pixels = (int) distance;
+        remainder = distance - pixels;
+
+        return pixels;
+    }
+}
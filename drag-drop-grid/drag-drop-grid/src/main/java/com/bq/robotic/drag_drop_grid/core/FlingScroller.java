@@ -0,0 +1,199 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+/**
+ * Physics of the fling of the grid. The velocity decays exponentially with the elapsed time and,
+ * out of the scroll limits, a damped spring pulls the scroll back to the nearest limit. As it
+ * integrates the real time between frames, the movement is the same whatever the frame rate is.
+ */
+public class FlingScroller {
+
+    public static final float DEFAULT_DECAY = 4.2f;
+    public static final float DEFAULT_SPRING_STIFFNESS = 250f;
+    public static final float DEFAULT_SPRING_DAMPING_RATIO = 1f;
+    public static final float DEFAULT_STOP_VELOCITY = 20f;
+
+    // Longest step of the spring integration, in seconds, for keeping it stable
+    private static final float MAX_SPRING_STEP = .004f;
+
+    private float decay = DEFAULT_DECAY;
+    private float springStiffness = DEFAULT_SPRING_STIFFNESS;
+    private float springDamping = 2 * DEFAULT_SPRING_DAMPING_RATIO * (float) Math.sqrt(DEFAULT_SPRING_STIFFNESS);
+    private float stopVelocity = DEFAULT_STOP_VELOCITY;
+    private float maxVelocity = Float.MAX_VALUE;
+
+    private float position, velocity;
+    private boolean finished = true;
+
+
+    /**
+     * Set how fast the fling slows down
+     *
+     * @param decay rate of the exponential decay of the velocity, per second
+     */
+    public void setDecay(float decay) {
+        if (decay <= 0) {
+            throw new IllegalArgumentException("The decay must be positive: " + decay);
+        }
+
+        this.decay = decay;
+    }
+
+
+    public float getDecay() {
+        return decay;
+    }
+
+
+    /**
+     * Set the spring that pulls the scroll back when it is out of the limits
+     *
+     * @param stiffness    stiffness of the spring, per second squared
+     * @param dampingRatio 1 for a critically damped spring, less for bouncing back
+     */
+    public void setSpring(float stiffness, float dampingRatio) {
+        if (stiffness <= 0 || dampingRatio <= 0) {
+            throw new IllegalArgumentException("The stiffness and the damping ratio must be positive: "
+                    + stiffness + ", " + dampingRatio);
+        }
+
+        this.springStiffness = stiffness;
+        this.springDamping = 2 * dampingRatio * (float) Math.sqrt(stiffness);
+    }
+
+
+    /**
+     * Set the limits of the velocity
+     *
+     * @param stopVelocity the fling stops below this velocity, in pixels per second
+     * @param maxVelocity  the fling never starts faster than this, in pixels per second
+     */
+    public void setVelocityLimits(float stopVelocity, float maxVelocity) {
+        this.stopVelocity = stopVelocity;
+        this.maxVelocity = maxVelocity;
+    }
+
+
+    /**
+     * Start a fling
+     *
+     * @param position the current scroll
+     * @param velocity the initial velocity, in pixels per second
+     */
+    public void fling(float position, float velocity) {
+        this.position = position;
+        this.velocity = Math.max(-maxVelocity, Math.min(velocity, maxVelocity));
+        finished = false;
+    }
+
+
+    /**
+     * Start moving to a resting position with the spring. The velocity is kept only as long as a
+     * critically damped spring doesn't overshoot the position with it.
+     *
+     * @param position current position
+     * @param velocity current velocity, in pixels per second
+     * @param target   resting position, pass it as both limits of {@link #step}
+     */
+    public void snap(float position, float velocity, float target) {
+        float distance = target - position;
+
+        if (velocity * distance > 0) {
+            float maxApproachVelocity = (float) Math.sqrt(springStiffness) * Math.abs(distance);
+            velocity = Math.signum(velocity) * Math.min(Math.abs(velocity), maxApproachVelocity);
+        }
+
+        fling(position, velocity);
+    }
+
+
+    /**
+     * Stop the fling where it is
+     */
+    public void abort() {
+        velocity = 0;
+        finished = true;
+    }
+
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+
+    public float getPosition() {
+        return position;
+    }
+
+
+    public float getVelocity() {
+        return velocity;
+    }
+
+
+    /**
+     * Advance the fling
+     *
+     * @param seconds time elapsed since the previous step
+     * @param min     minimum scroll
+     * @param max     maximum scroll
+     * @return if the fling goes on after this step
+     */
+    public boolean step(float seconds, float min, float max) {
+        if (finished) {
+            return false;
+        }
+
+        while (seconds > 0) {
+            if (position >= min && position <= max) {
+                // Exact integration of the exponential decay, it doesn't depend on the step
+                float step = seconds;
+                float factor = (float) Math.exp(-decay * step);
+                position += velocity * (1 - factor) / decay;
+                velocity *= factor;
+                seconds = 0;
+
+                if (Math.abs(velocity) < stopVelocity && position >= min && position <= max) {
+                    abort();
+                    return false;
+                }
+
+            } else {
+                float step = Math.min(seconds, MAX_SPRING_STEP);
+                float limit = position < min ? min : max;
+                float acceleration = -springStiffness * (position - limit) - springDamping * velocity;
+                velocity += acceleration * step;
+                position += velocity * step;
+                seconds -= step;
+
+                if (Math.abs(position - limit) < .5f && Math.abs(velocity) < stopVelocity) {
+                    position = limit;
+                    abort();
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+}
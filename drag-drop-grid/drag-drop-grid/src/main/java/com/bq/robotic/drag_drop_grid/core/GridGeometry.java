@@ -0,0 +1,428 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package com.bq.robotic.drag_drop_grid.core;
+
+/**
+ * Geometry of the cells of the grid, computed once each time the layout changes. The origin of
+ * the first cell already includes the padding and the centering offset, so the position of any
+ * cell is just a multiplication and nothing is allocated for getting it.
+ */
+public class GridGeometry {
+
+    private int originX = 0;
+    private int originY = 0;
+    private int cellWidth = 0;
+    private int cellHeight = 0;
+    private int columnCount = 0;
+
+    // Pages side by side, each one with a fixed number of rows, if the rows per page isn't 0
+    private int rowsPerPage = 0;
+    private int pageWidth = 0;
+
+
+    /**
+     * Compute the geometry for the current size and configuration of the grid
+     *
+     * @param width         width of the grid
+     * @param paddingLeft   left padding of the grid
+     * @param paddingTop    top padding of the grid
+     * @param paddingRight  right padding of the grid
+     * @param cellWidth     width of the cells
+     * @param cellHeight    height of the cells
+     * @param columnCount   number of columns
+     * @param center        if the children must always be centered
+     * @return if the geometry has changed
+     */
+    public boolean update(float width, int paddingLeft, int paddingTop, int paddingRight,
+                          int cellWidth, int cellHeight, int columnCount, boolean center) {
+
+        int originX = paddingLeft + GridMath.centeringOffset(width, paddingLeft, paddingRight,
+                cellWidth, columnCount, center);
+
+        if (originX == this.originX && paddingTop == this.originY && cellWidth == this.cellWidth
+                && cellHeight == this.cellHeight && columnCount == this.columnCount) {
+            return false;
+        }
+
+        this.originX = originX;
+        this.originY = paddingTop;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.columnCount = columnCount;
+
+        return true;
+    }
+
+
+    /**
+     * Set if the cells are split in pages side by side, each one as wide as the grid
+     *
+     * @param rowsPerPage number of rows of each page, or 0 for a single page as tall as needed
+     * @param pageWidth   width of the pages
+     * @return if the paging has changed
+     */
+    public boolean updatePaging(int rowsPerPage, int pageWidth) {
+        if (rowsPerPage == this.rowsPerPage && pageWidth == this.pageWidth) {
+            return false;
+        }
+
+        this.rowsPerPage = rowsPerPage;
+        this.pageWidth = pageWidth;
+
+        return true;
+    }
+
+
+    /**
+     * Get the left coordinate of the cell of the item at the given index
+     *
+     * @param index index of the item
+     * @return the left coordinate
+     */
+    public int getLeft(int index) {
+        if (rowsPerPage > 0) {
+            return originX + pageWidth * getPage(index) + cellWidth * (index % Math.max(columnCount, 1));
+        }
+
+        return originX + cellWidth * (index % Math.max(columnCount, 1));
+    }
+
+
+    /**
+     * Get the top coordinate of the cell of the item at the given index, without scrolling
+     *
+     * @param index index of the item
+     * @return the top coordinate
+     */
+    public int getTop(int index) {
+        if (rowsPerPage > 0) {
+            // Without columns yet, before the first measure, there aren't pages either
+            if (columnCount == 0) {
+                return originY;
+            }
+
+            return originY + cellHeight * ((index % getItemsPerPage()) / columnCount);
+        }
+
+        return originY + cellHeight * (index / Math.max(columnCount, 1));
+    }
+
+
+    /**
+     * Get the page of the item at the given index
+     *
+     * @param index index of the item
+     * @return the page, always 0 if the cells aren't split in pages or there aren't columns yet
+     */
+    public int getPage(int index) {
+        if (rowsPerPage == 0 || columnCount == 0) {
+            return 0;
+        }
+
+        return index / getItemsPerPage();
+    }
+
+
+    /**
+     * Get the page at an horizontal coordinate
+     *
+     * @param x x coordinate, without scrolling
+     * @return the page, or -1 if it is before the first page. It is always 0 if the cells aren't
+     * split in pages
+     */
+    public int getPageFromCoor(int x) {
+        if (rowsPerPage == 0) {
+            return 0;
+        }
+
+        if (x < 0 || pageWidth <= 0) {
+            return -1;
+        }
+
+        return x / pageWidth;
+    }
+
+
+    /**
+     * Get the number of items of each page
+     *
+     * @return the items per page, or 0 if the cells aren't split in pages
+     */
+    public int getItemsPerPage() {
+        return rowsPerPage * columnCount;
+    }
+
+
+    /**
+     * Gets the number of the column for an x coordinate
+     *
+     * @param x x coordinate
+     * @return number of the column, or -1 if it isn't inside any column
+     */
+    public int getColFromCoor(int x) {
+        return GridMath.cellFromOffset(x - originX, cellWidth);
+    }
+
+
+    /**
+     * Gets the number of the row for an y coordinate, without scrolling
+     *
+     * @param y y coordinate
+     * @return number of the row, or -1 if it isn't inside any row
+     */
+    public int getRowFromCoor(int y) {
+        return GridMath.cellFromOffset(y - originY, cellHeight);
+    }
+
+
+    /**
+     * Gets the first position of the rows from a vertical coordinate, or of some rows above them
+     *
+     * @param top       top of the rows, without scrolling
+     * @param extraRows number of rows above
+     * @return the first position
+     */
+    public int getFirstPosition(int top, int extraRows) {
+        if (columnCount == 0 || cellHeight == 0 || rowsPerPage > 0) {
+            return 0;
+        }
+
+        int firstRow = (top - originY) / cellHeight - extraRows;
+        return Math.max(0, firstRow * columnCount);
+    }
+
+
+    /**
+     * Gets the last position of the rows until a vertical coordinate, or of some rows below them
+     *
+     * @param bottom    bottom of the rows, without scrolling
+     * @param extraRows number of rows below
+     * @param itemCount number of items
+     * @return the last position, or -1 if there isn't any
+     */
+    public int getLastPosition(int bottom, int extraRows, int itemCount) {
+        if (columnCount == 0 || cellHeight == 0) {
+            return -1;
+        }
+
+        if (rowsPerPage > 0) {
+            return itemCount - 1;
+        }
+
+        int lastRow = (bottom - originY) / cellHeight + extraRows;
+        return Math.min(itemCount - 1, (lastRow + 1) * columnCount - 1);
+    }
+
+
+    /**
+     * Gets the index of the item at the given coordinates, without scrolling
+     *
+     * @param x         x coordinate
+     * @param y         y coordinate
+     * @param itemCount number of items
+     * @return the index of the item, or -1 if there isn't any item there
+     */
+    public int getIndexFromCoor(int x, int y, int itemCount) {
+        return getIndexInRow(x, getRowFromCoor(y), itemCount);
+    }
+
+
+    /**
+     * Gets the index of the cell nearest to the given coordinates, without scrolling, where an item
+     * would be inserted. The padding, the margins and the borders between cells belong to the
+     * nearest cell, so the index doesn't jump while the coordinates cross them.
+     *
+     * @param x         x coordinate
+     * @param y         y coordinate
+     * @param itemCount number of items
+     * @return the index, from 0 to itemCount for the cell after the last item
+     */
+    public int getNearestIndexFromCoor(int x, int y, int itemCount) {
+        if (columnCount == 0) {
+            return itemCount;
+        }
+
+        int col, row;
+        if (rowsPerPage > 0) {
+            // The pages go on until the one with the cell after the last item
+            int lastPage = itemCount / getItemsPerPage();
+            int page = (x < 0 || pageWidth <= 0) ? 0 : Math.min(x / pageWidth, lastPage);
+
+            col = GridMath.nearestCellFromOffset(x - page * pageWidth - originX, cellWidth, columnCount);
+            row = GridMath.nearestCellFromOffset(y - originY, cellHeight, rowsPerPage);
+            if (row != -1) {
+                row += page * rowsPerPage;
+            }
+
+        } else {
+            col = GridMath.nearestCellFromOffset(x - originX, cellWidth, columnCount);
+            row = GridMath.nearestCellFromOffset(y - originY, cellHeight, itemCount / columnCount + 1);
+        }
+
+        if (col == -1 || row == -1) {
+            return itemCount;
+        }
+
+        return Math.min(row * columnCount + col, itemCount);
+    }
+
+
+    /**
+     * Gets the index of the item under a horizontal coordinate, in a row already found
+     *
+     * @param x         horizontal coordinate, relative to the content
+     * @param row       the row, of the page in paged mode, or -1
+     * @param itemCount number of items
+     * @return the index of the item, or -1 if there isn't any item there
+     */
+    private int getIndexInRow(int x, int row, int itemCount) {
+        if (rowsPerPage > 0) {
+            int page = getPageFromCoor(x);
+            int col = getColFromCoor(x - page * pageWidth);
+
+            if (page == -1 || row >= rowsPerPage || col >= columnCount) {
+                return -1;
+            }
+
+            return GridMath.indexFromCell(row == -1 ? -1 : page * rowsPerPage + row, col, columnCount, itemCount);
+        }
+
+        return GridMath.indexFromCell(row, getColFromCoor(x), columnCount, itemCount);
+    }
+
+
+    /**
+     * Gets the first position of the pages from an horizontal coordinate, or of some pages before
+     * them
+     *
+     * @param left       left of the pages, without scrolling
+     * @param extraPages number of pages before
+     * @return the first position
+     */
+    public int getFirstPositionInPages(int left, int extraPages) {
+        if (getItemsPerPage() == 0 || pageWidth == 0) {
+            return 0;
+        }
+
+        int firstPage = Math.max(getPageFromCoor(left), 0) - extraPages;
+        return Math.max(0, firstPage * getItemsPerPage());
+    }
+
+
+    /**
+     * Gets the last position of the pages until an horizontal coordinate, or of some pages after
+     * them
+     *
+     * @param right      right of the pages, without scrolling
+     * @param extraPages number of pages after
+     * @param itemCount  number of items
+     * @return the last position, or -1 if there isn't any
+     */
+    public int getLastPositionInPages(int right, int extraPages, int itemCount) {
+        if (getItemsPerPage() == 0 || pageWidth == 0) {
+            return -1;
+        }
+
+        int lastPage = Math.max(getPageFromCoor(right - 1), 0) + extraPages;
+        return Math.min(itemCount - 1, (lastPage + 1) * getItemsPerPage() - 1);
+    }
+
+
+    /**
+     * Gets the position where a dragged item would be dropped at the given coordinates, without
+     * scrolling. There is a target only when the touch is near the border between two cells, a
+     * quarter of a cell at each side.
+     *
+     * @param x         x coordinate
+     * @param y         y coordinate
+     * @param dragged   position of the dragged item
+     * @param itemCount number of items
+     * @return the target position, or -1 if the touch isn't between two items
+     */
+    public int getTargetFromCoor(int x, int y, int dragged, int itemCount) {
+        int row = getRowFromCoor(y);
+
+        if (row == -1) { //touch is between rows
+            return -1;
+        }
+
+        // The row is the same at both sides of the touch, only the columns are found again
+        int leftPos = getIndexInRow(x - (cellWidth / 4), row, itemCount);
+        int rightPos = getIndexInRow(x + (cellWidth / 4), row, itemCount);
+
+        if (leftPos == -1 && rightPos == -1) { //touch is in the middle of nowhere
+            return -1;
+
+        } else if (leftPos == rightPos) { //touch is in the middle of a visual
+            return -1;
+        }
+
+        int target = -1;
+
+        if (rightPos > -1) {
+            target = rightPos;
+
+        } else if (leftPos > -1) {
+            target = leftPos + 1;
+        }
+
+        if (dragged < target) {
+            return target - 1;
+        }
+
+        return target;
+    }
+
+
+    public int getOriginX() {
+        return originX;
+    }
+
+
+    public int getOriginY() {
+        return originY;
+    }
+
+
+    public int getCellWidth() {
+        return cellWidth;
+    }
+
+
+    public int getCellHeight() {
+        return cellHeight;
+    }
+
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+
+    public int getRowsPerPage() {
+        return rowsPerPage;
+    }
+
+
+    public int getPageWidth() {
+        return pageWidth;
+    }
+}
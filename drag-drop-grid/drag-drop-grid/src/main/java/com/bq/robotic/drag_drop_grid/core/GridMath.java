@@ -0,0 +1,266 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package com.bq.robotic.drag_drop_grid.core;
+
+/**
+ * Closed-form arithmetic for finding the cells of the grid, so hit testing costs the same
+ * whatever the position of the touch in the grid is
+ */
+public final class GridMath {
+
+    private GridMath() {
+    }
+
+
+    /**
+     * Gets the number of the cell along one axis (column or row) given the distance from the
+     * start of the first cell. The start of the grid and the exact border between two cells don't
+     * belong to any cell.
+     *
+     * @param offset   distance from the start of the first cell
+     * @param cellSize size of the cells along the axis
+     * @return number of the cell, or -1 if the offset is before the first cell or in a border
+     */
+    public static int cellFromOffset(int offset, int cellSize) {
+        if (offset <= 0 || cellSize <= 0 || offset % cellSize == 0) {
+            return -1;
+        }
+
+        return offset / cellSize;
+    }
+
+
+    /**
+     * Gets the number of the cell nearest to an offset along one axis. Unlike
+     * {@link #cellFromOffset(int, int)}, the borders, the space before the first cell and the space
+     * after the last one belong to the nearest cell.
+     *
+     * @param offset    distance from the start of the first cell
+     * @param cellSize  size of the cells along the axis
+     * @param cellCount number of cells along the axis
+     * @return number of the cell, or -1 if there isn't any cell
+     */
+    public static int nearestCellFromOffset(int offset, int cellSize, int cellCount) {
+        if (cellSize <= 0 || cellCount <= 0) {
+            return -1;
+        }
+
+        return (offset < 0) ? 0 : Math.min(offset / cellSize, cellCount - 1);
+    }
+
+
+    /**
+     * Gets the number of columns that fit in the grid
+     *
+     * @param width        width of the grid
+     * @param paddingLeft  left padding of the grid
+     * @param paddingRight right padding of the grid
+     * @param cellWidth    width of the cells
+     * @param itemCount    number of items, there are never more columns than items
+     * @param fixedColumns number of columns asked for, or 0 for as many as fit
+     * @return the number of columns
+     */
+    public static int columnCount(float width, int paddingLeft, int paddingRight, int cellWidth,
+                                  int itemCount, int fixedColumns) {
+
+        float availableWidth = width - (paddingRight + paddingLeft);
+        int columnCount;
+
+        if (itemCount <= 0 || availableWidth < cellWidth) {
+            columnCount = 0;
+        } else if (cellWidth <= 0) {
+            columnCount = itemCount;
+        } else {
+            columnCount = (int) Math.min(itemCount, Math.floor((double) availableWidth / cellWidth));
+        }
+
+        // A fixed number of columns is used only if it isn't bigger than the columns that fit
+        if (fixedColumns > 0 && fixedColumns < columnCount) {
+            columnCount = fixedColumns;
+        }
+
+        return columnCount;
+    }
+
+
+    /**
+     * Gets the maximum scroll for showing all the rows of the grid
+     *
+     * @param itemCount     number of items
+     * @param columnCount   number of columns
+     * @param cellHeight    height of the cells
+     * @param paddingTop    top padding of the grid
+     * @param paddingBottom bottom padding of the grid
+     * @param height        height of the grid
+     * @return the maximum scroll, it is negative if all the rows fit in the grid
+     */
+    public static int maxScroll(int itemCount, int columnCount, int cellHeight, int paddingTop,
+                                int paddingBottom, int height) {
+        if (columnCount == 0) {
+            return 0;
+        }
+
+        int rowCount = (itemCount + columnCount - 1) / columnCount;
+        return maxScrollForRows(rowCount, cellHeight, paddingTop, paddingBottom, height);
+    }
+
+
+    /**
+     * Gets the maximum scroll for showing a number of rows
+     *
+     * @param rowCount      number of rows
+     * @param cellHeight    height of the cells
+     * @param paddingTop    top padding of the grid
+     * @param paddingBottom bottom padding of the grid
+     * @param height        height of the grid
+     * @return the maximum scroll, it is negative if all the rows fit in the grid
+     */
+    public static int maxScrollForRows(int rowCount, int cellHeight, int paddingTop,
+                                       int paddingBottom, int height) {
+        return rowCount * cellHeight + paddingTop + paddingBottom - height;
+    }
+
+
+    /**
+     * Gets the number of pages for showing all the items
+     *
+     * @param itemCount    number of items
+     * @param itemsPerPage number of items in each page
+     * @return the number of pages, at least one
+     */
+    public static int pageCount(int itemCount, int itemsPerPage) {
+        if (itemsPerPage <= 0) {
+            return 1;
+        }
+
+        return Math.max(1, (itemCount + itemsPerPage - 1) / itemsPerPage);
+    }
+
+
+    /**
+     * Gets the size of the cells along one axis of a page, dividing the page between them
+     *
+     * @param size         size of the grid along the axis
+     * @param paddingStart padding of the grid at the start of the axis
+     * @param paddingEnd   padding of the grid at the end of the axis
+     * @param cellCount    number of cells along the axis
+     * @return the size of the cells
+     */
+    public static int pageCellSize(int size, int paddingStart, int paddingEnd, int cellCount) {
+        if (cellCount <= 0) {
+            return 0;
+        }
+
+        return Math.max(0, (size - paddingStart - paddingEnd) / cellCount);
+    }
+
+
+    /**
+     * Gets the page where a scroll settles when the finger is lifted. A fast enough fling goes
+     * to the next or to the previous page, otherwise the nearest page is shown.
+     *
+     * @param scroll      the scroll
+     * @param pageWidth   width of the pages
+     * @param velocity    velocity of the scroll, in pixels per second
+     * @param minVelocity minimum velocity of a fling
+     * @param pageCount   number of pages
+     * @return the page
+     */
+    public static int snapPage(int scroll, int pageWidth, float velocity, float minVelocity, int pageCount) {
+        if (pageWidth <= 0) {
+            return 0;
+        }
+
+        int page;
+        if (velocity > minVelocity) {
+            page = (int) Math.floor((double) scroll / pageWidth) + 1;
+        } else if (velocity < -minVelocity) {
+            page = (int) Math.floor((double) scroll / pageWidth);
+        } else {
+            page = (int) Math.floor(((double) scroll + pageWidth / 2) / pageWidth);
+        }
+
+        return Math.max(0, Math.min(page, pageCount - 1));
+    }
+
+
+    /**
+     * Keep a scroll within a distance out of its limits
+     *
+     * @param scroll    the scroll
+     * @param maxScroll the maximum scroll, if it is negative the maximum is 0
+     * @param overreach how far out of the limits the scroll can be
+     * @return the scroll clamped
+     */
+    public static int clampScroll(int scroll, int maxScroll, int overreach) {
+        int max = Math.max(maxScroll, 0);
+        return Math.max(-overreach, Math.min(scroll, max + overreach));
+    }
+
+
+    /**
+     * Gets the horizontal offset for centering the columns in the grid. They are centered if it
+     * is asked for or if there isn't room for another column.
+     *
+     * @param width        width of the grid
+     * @param paddingLeft  left padding of the grid
+     * @param paddingRight right padding of the grid
+     * @param cellWidth    width of the cells
+     * @param columnCount  number of columns
+     * @param center       if the children must always be centered
+     * @return the offset from the left padding to the first column
+     */
+    public static int centeringOffset(float width, int paddingLeft, int paddingRight, int cellWidth,
+                                      int columnCount, boolean center) {
+
+        float emptySpaceInGrid = width - paddingLeft - paddingRight - (cellWidth * columnCount);
+
+        if (center || emptySpaceInGrid < cellWidth) {
+            return Math.round(emptySpaceInGrid / 2);
+        }
+
+        return 0;
+    }
+
+
+    /**
+     * Gets the index of the item in the given cell
+     *
+     * @param row         number of the row, or -1
+     * @param col         number of the column, or -1
+     * @param columnCount number of columns
+     * @param itemCount   number of items
+     * @return the index of the item, or -1 if there isn't any item there
+     */
+    public static int indexFromCell(int row, int col, int columnCount, int itemCount) {
+        if (col == -1 || row == -1) {
+            return -1;
+        }
+
+        int index = row * columnCount + col;
+
+        if (index >= itemCount) {
+            return -1;
+        }
+
+        return index;
+    }
+}
@@ -0,0 +1,394 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import java.util.Arrays;
+
+/**
+ * Permutation between the positions of the items in the grid and the indexes of their views as
+ * children of the grid. Rearranging the items only moves indexes in this permutation, so the
+ * children never have to be detached and attached again.
+ */
+public class ItemOrder {
+
+    private int[] childIndexes = new int[16];
+    private int size = 0;
+
+
+    /**
+     * Number of items
+     *
+     * @return the number of items
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * Get the index of the child that shows the item at the given position
+     *
+     * @param position position of the item
+     * @return index of the child
+     */
+    public int get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of " + size + " items");
+        }
+
+        return childIndexes[position];
+    }
+
+
+    /**
+     * Get the position of the item shown by the child at the given index
+     *
+     * @param childIndex index of the child
+     * @return position of the item, or -1 if there isn't any
+     */
+    public int positionOf(int childIndex) {
+        for (int position = 0; position < size; position++) {
+            if (childIndexes[position] == childIndex) {
+                return position;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Add a new item at the end, shown by a child added at the end of the children
+     */
+    public void add() {
+        if (size == childIndexes.length) {
+            childIndexes = Arrays.copyOf(childIndexes, size * 2);
+        }
+
+        childIndexes[size] = size;
+        size++;
+    }
+
+
+    /**
+     * Add a new item at the end, shown by a child inserted at the given index of the children.
+     * The indexes of the children from there on are shifted, as they are in the parent.
+     *
+     * @param childIndex index of the new child
+     */
+    public void insert(int childIndex) {
+        if (childIndex < 0 || childIndex > size) {
+            throw new IndexOutOfBoundsException("Child index " + childIndex + " out of " + size + " children");
+        }
+
+        if (size == childIndexes.length) {
+            childIndexes = Arrays.copyOf(childIndexes, size * 2);
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (childIndexes[i] >= childIndex) {
+                childIndexes[i]++;
+            }
+        }
+
+        childIndexes[size] = childIndex;
+        size++;
+    }
+
+
+    /**
+     * Remove the item shown by the child at the given index. The indexes of the children after
+     * the removed one are shifted, as they are in the parent.
+     *
+     * @param childIndex index of the removed child
+     * @return position of the removed item, or -1 if there wasn't any
+     */
+    public int removeChild(int childIndex) {
+        int position = positionOf(childIndex);
+
+        if (position != -1) {
+            remove(position);
+        }
+
+        return position;
+    }
+
+
+    /**
+     * Remove the item at the given position. The indexes of the children after the removed one
+     * are shifted, as they are in the parent.
+     *
+     * @param position position of the item
+     * @return index of the child that showed the removed item
+     */
+    public int remove(int position) {
+        int childIndex = get(position);
+
+        System.arraycopy(childIndexes, position + 1, childIndexes, position, size - position - 1);
+        size--;
+
+        for (int i = 0; i < size; i++) {
+            if (childIndexes[i] > childIndex) {
+                childIndexes[i]--;
+            }
+        }
+
+        return childIndex;
+    }
+
+
+    /**
+     * Remove a range of items. The indexes of the children after the removed ones are shifted, as
+     * they are in the parent.
+     *
+     * @param position position of the first item to remove
+     * @param count    number of items to remove
+     * @return indexes of the children that showed the removed items, in ascending order
+     */
+    public int[] removeRange(int position, int count) {
+        if (position < 0 || count < 0 || position + count > size) {
+            throw new IndexOutOfBoundsException("Range " + position + "+" + count + " out of " + size + " items");
+        }
+
+        int[] removed = Arrays.copyOfRange(childIndexes, position, position + count);
+        Arrays.sort(removed);
+
+        System.arraycopy(childIndexes, position + count, childIndexes, position, size - position - count);
+        size -= count;
+
+        // Each index goes down by the number of removed indexes below it
+        for (int i = 0; i < size; i++) {
+            int below = -Arrays.binarySearch(removed, childIndexes[i]) - 1;
+            childIndexes[i] -= below;
+        }
+
+        return removed;
+    }
+
+
+    /**
+     * Remove the items at several positions. The indexes of the children after the removed ones
+     * are shifted, as they are in the parent.
+     *
+     * @param positions positions of the items to remove, in ascending order
+     * @return indexes of the children that showed the removed items, in ascending order
+     */
+    public int[] removeAll(int[] positions) {
+        int[] removed = new int[positions.length];
+        int kept = 0;
+
+        for (int position = 0, next = 0; position < size; position++) {
+            if (next < positions.length && positions[next] == position) {
+                removed[next++] = childIndexes[position];
+            } else {
+                childIndexes[kept++] = childIndexes[position];
+            }
+        }
+
+        size = kept;
+        Arrays.sort(removed);
+
+        // Each index goes down by the number of removed indexes below it
+        for (int i = 0; i < size; i++) {
+            int below = -Arrays.binarySearch(removed, childIndexes[i]) - 1;
+            childIndexes[i] -= below;
+        }
+
+        return removed;
+    }
+
+
+    /**
+     * Rearrange all the items at once
+     *
+     * @param sources for each new position, the current position of the item that goes there
+     */
+    public void permute(int[] sources) {
+        if (sources.length != size) {
+            throw new IllegalArgumentException(sources.length + " positions for " + size + " items");
+        }
+
+        int[] current = Arrays.copyOf(childIndexes, size);
+
+        for (int i = 0; i < size; i++) {
+            childIndexes[i] = current[sources[i]];
+        }
+    }
+
+
+    /**
+     * Move an item to a new position, shifting the items between both positions
+     *
+     * @param from old position of the item
+     * @param to   new position of the item
+     */
+    public void move(int from, int to) {
+        int childIndex = get(from);
+        get(to);
+
+        if (from < to) {
+            System.arraycopy(childIndexes, from + 1, childIndexes, from, to - from);
+        } else if (to < from) {
+            System.arraycopy(childIndexes, to, childIndexes, to + 1, from - to);
+        }
+
+        childIndexes[to] = childIndex;
+    }
+
+
+    /**
+     * Encode the order in a few bytes, for saving it. Rearranging leaves most of the items in
+     * runs of consecutive children, so each run is written as the jump from the end of the
+     * previous run and its length, both as varints. An order never rearranged takes a few bytes,
+     * whatever the number of items.
+     *
+     * @return the encoded order
+     */
+    public byte[] pack() {
+        byte[] packed = new byte[16];
+        int length = writeVarint(packed, 0, size);
+        int expected = 0;
+
+        for (int start = 0; start < size; ) {
+            int end = start + 1;
+            while (end < size && childIndexes[end] == childIndexes[end - 1] + 1) {
+                end++;
+            }
+
+            // Room for two varints of 5 bytes at most
+            if (length + 10 > packed.length) {
+                packed = Arrays.copyOf(packed, packed.length * 2);
+            }
+
+            int jump = childIndexes[start] - expected;
+            length = writeVarint(packed, length, (jump << 1) ^ (jump >> 31));
+            length = writeVarint(packed, length, end - start);
+
+            expected = childIndexes[end - 1] + 1;
+            start = end;
+        }
+
+        return Arrays.copyOf(packed, length);
+    }
+
+
+    /**
+     * Restore an order encoded with {@link #pack()}, in one pass
+     *
+     * @param packed the encoded order
+     * @return false if it isn't a valid order of the current number of items, and then the order
+     * isn't changed
+     */
+    public boolean unpack(byte[] packed) {
+        int[] cursor = new int[1];
+        if (readVarint(packed, cursor) != size) {
+            return false;
+        }
+
+        int[] restored = new int[size];
+        boolean[] seen = new boolean[size];
+        int expected = 0;
+
+        for (int position = 0; position < size; ) {
+            int zigzag = readVarint(packed, cursor);
+            int runLength = readVarint(packed, cursor);
+            int start = expected + ((zigzag >>> 1) ^ -(zigzag & 1));
+
+            if (zigzag < 0 || runLength <= 0 || runLength > size - position
+                    || start < 0 || start > size - runLength) {
+                return false;
+            }
+
+            for (int childIndex = start; childIndex < start + runLength; childIndex++) {
+                if (seen[childIndex]) {
+                    return false;
+                }
+
+                seen[childIndex] = true;
+                restored[position++] = childIndex;
+            }
+
+            expected = start + runLength;
+        }
+
+        if (cursor[0] != packed.length) {
+            return false;
+        }
+
+        System.arraycopy(restored, 0, childIndexes, 0, size);
+        return true;
+    }
+
+
+    /**
+     * Number of items of an order encoded with {@link #pack()}, without decoding it
+     *
+     * @param packed the encoded order
+     * @return the number of items, or -1 if the encoded order is truncated
+     */
+    public static int packedSize(byte[] packed) {
+        return readVarint(packed, new int[1]);
+    }
+
+
+    private static int writeVarint(byte[] buffer, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+
+    /**
+     * Read a varint and advance the cursor
+     *
+     * @return the value, or -1 if the varint is truncated or too long
+     */
+    private static int readVarint(byte[] buffer, int[] cursor) {
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (cursor[0] >= buffer.length) {
+                return -1;
+            }
+
+            byte b = buffer[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Remove all the items
+     */
+    public void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Difference between two lists of stable item ids, as the smallest set of removals, insertions
+ * and moves that turns the old list into the new one. The items kept in both lists that are in
+ * the longest increasing run of their old positions stay where they are relative to each other,
+ * so only the rest of them count as moved.
+ *
+ * It doesn't depend on the views, so it can be computed out of the main thread. An id repeated
+ * in a list only matches its first appearance, the next ones are removed or inserted.
+ */
+public class ListDiff {
+
+    private final int[] oldToNew;
+    private final int[] newToOld;
+    private final boolean[] moved;
+    private int removedCount = 0;
+    private int insertedCount = 0;
+    private int movedCount = 0;
+
+
+    /**
+     * Compute the difference between two lists of ids
+     *
+     * @param oldIds ids of the items as they are now
+     * @param newIds ids of the items in their new order
+     */
+    public ListDiff(long[] oldIds, long[] newIds) {
+        oldToNew = new int[oldIds.length];
+        newToOld = new int[newIds.length];
+        moved = new boolean[newIds.length];
+
+        HashMap<Long, Integer> oldPositions = new HashMap<Long, Integer>(oldIds.length * 2);
+        for (int i = oldIds.length - 1; i >= 0; i--) {
+            oldPositions.put(oldIds[i], i);
+        }
+
+        Arrays.fill(oldToNew, -1);
+        for (int i = 0; i < newIds.length; i++) {
+            Integer oldPosition = oldPositions.remove(newIds[i]);
+
+            if (oldPosition == null) {
+                newToOld[i] = -1;
+                insertedCount++;
+            } else {
+                newToOld[i] = oldPosition;
+                oldToNew[oldPosition] = i;
+            }
+        }
+
+        removedCount = oldIds.length - (newIds.length - insertedCount);
+        findMoves();
+    }
+
+
+    /**
+     * Mark as moved the kept items that aren't in the longest increasing run of old positions,
+     * in the new order. Patience sorting, O(n log n).
+     */
+    private void findMoves() {
+        int[] tails = new int[newToOld.length];     // new position ending each run length
+        int[] previous = new int[newToOld.length];  // previous new position in the run
+        int length = 0;
+
+        for (int i = 0; i < newToOld.length; i++) {
+            if (newToOld[i] == -1) {
+                continue;
+            }
+
+            int low = 0, high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (newToOld[tails[middle]] < newToOld[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            previous[i] = (low > 0) ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        for (int i = 0; i < newToOld.length; i++) {
+            moved[i] = newToOld[i] != -1;
+        }
+
+        for (int i = (length > 0) ? tails[length - 1] : -1; i != -1; i = previous[i]) {
+            moved[i] = false;
+        }
+
+        movedCount = newToOld.length - insertedCount - length;
+    }
+
+
+    /**
+     * Check if both lists have the same items in the same order
+     *
+     * @return if there is nothing to change
+     */
+    public boolean isEmpty() {
+        return removedCount == 0 && insertedCount == 0 && movedCount == 0;
+    }
+
+
+    public int getRemovedCount() {
+        return removedCount;
+    }
+
+
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+
+    public int getMovedCount() {
+        return movedCount;
+    }
+
+
+    /**
+     * Get the new position of an item
+     *
+     * @param oldPosition position of the item in the old list
+     * @return position in the new list, or -1 if it is removed
+     */
+    public int getNewPosition(int oldPosition) {
+        return oldToNew[oldPosition];
+    }
+
+
+    /**
+     * Get the old position of an item
+     *
+     * @param newPosition position of the item in the new list
+     * @return position in the old list, or -1 if it is inserted
+     */
+    public int getOldPosition(int newPosition) {
+        return newToOld[newPosition];
+    }
+
+
+    /**
+     * Check if a kept item is moved, and not only shifted by the removals and insertions or by
+     * the other moves
+     *
+     * @param newPosition position of the item in the new list
+     * @return if the item is moved
+     */
+    public boolean isMoved(int newPosition) {
+        return moved[newPosition];
+    }
+
+
+    /**
+     * Get the old positions of the removed items
+     *
+     * @return the positions, in ascending order
+     */
+    public int[] getRemovedPositions() {
+        int[] removed = new int[removedCount];
+
+        for (int i = 0, j = 0; i < oldToNew.length; i++) {
+            if (oldToNew[i] == -1) {
+                removed[j++] = i;
+            }
+        }
+
+        return removed;
+    }
+
+
+    /**
+     * Get the order that turns the list into the new one once the removed items are taken out
+     * and the inserted ones are appended at the end, in their new order
+     *
+     * @return for each new position, the position of its item in that intermediate list
+     */
+    public int[] getSources() {
+        int[] sources = new int[newToOld.length];
+        int[] removedBefore = new int[oldToNew.length];
+        int removed = 0;
+
+        for (int i = 0; i < oldToNew.length; i++) {
+            removedBefore[i] = removed;
+            if (oldToNew[i] == -1) {
+                removed++;
+            }
+        }
+
+        int appended = oldToNew.length - removedCount;
+        for (int i = 0; i < newToOld.length; i++) {
+            int oldPosition = newToOld[i];
+            sources[i] = (oldPosition == -1) ? appended++ : oldPosition - removedBefore[oldPosition];
+        }
+
+        return sources;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import java.util.Arrays;
+
+/**
+ * Number of children for each size, kept sorted by size, so the biggest size is known without
+ * looking at all the children again. Children usually have a few different sizes, so adding or
+ * removing a size is a binary search over a very small array.
+ */
+public class SizeHistogram {
+
+    private int[] sizes = new int[4];
+    private int[] counts = new int[4];
+    private int distinctSizes = 0;
+
+
+    /**
+     * Count one more child with the given size
+     *
+     * @param size the size of the child
+     */
+    public void add(int size) {
+        int index = Arrays.binarySearch(sizes, 0, distinctSizes, size);
+
+        if (index >= 0) {
+            counts[index]++;
+            return;
+        }
+
+        index = -(index + 1);
+
+        if (distinctSizes == sizes.length) {
+            sizes = Arrays.copyOf(sizes, distinctSizes * 2);
+            counts = Arrays.copyOf(counts, distinctSizes * 2);
+        }
+
+        System.arraycopy(sizes, index, sizes, index + 1, distinctSizes - index);
+        System.arraycopy(counts, index, counts, index + 1, distinctSizes - index);
+        sizes[index] = size;
+        counts[index] = 1;
+        distinctSizes++;
+    }
+
+
+    /**
+     * Count one child less with the given size
+     *
+     * @param size the size of the child
+     */
+    public void remove(int size) {
+        int index = Arrays.binarySearch(sizes, 0, distinctSizes, size);
+
+        if (index < 0) {
+            throw new IllegalStateException("There isn't any child with size " + size);
+        }
+
+        if (--counts[index] == 0) {
+            System.arraycopy(sizes, index + 1, sizes, index, distinctSizes - index - 1);
+            System.arraycopy(counts, index + 1, counts, index, distinctSizes - index - 1);
+            distinctSizes--;
+        }
+    }
+
+
+    /**
+     * Get the biggest size counted
+     *
+     * @return the biggest size, or 0 if there isn't any
+     */
+    public int max() {
+        return (distinctSizes == 0) ? 0 : sizes[distinctSizes - 1];
+    }
+
+
+    /**
+     * Forget all the sizes
+     */
+    public void clear() {
+        distinctSizes = 0;
+    }
+}
@@ -0,0 +1,361 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import java.util.Arrays;
+
+/**
+ * Packing of items that span several columns and rows of the grid. The items are placed in
+ * order, each one in the first cell after the previous item where it fits, without going back
+ * for filling the holes left before, so the order of the items is kept as the reading order.
+ *
+ * As the items start in increasing cells, the item at a cell is found with a binary search by
+ * row and a look at the few items that can reach it. Moving an item only packs again from its
+ * old or new position, and stops as soon as the cells of the items after the move are the same
+ * as before.
+ */
+public class SpanLayout {
+
+    private int columnCount = 1;
+    private int size = 0;
+    private int[] columnSpans = new int[16];
+    private int[] rowSpans = new int[16];
+    private int[] rows = new int[16];
+    private int[] columns = new int[16];
+    private int rowCount = 0;
+    private int maxRowSpan = 1;
+
+    // Cells taken by the items already placed, in the rows from the cursor of the packing on
+    private boolean[] window = new boolean[0];
+    private int windowRow = 0;
+
+
+    /**
+     * Pack all the items
+     *
+     * @param columnCount number of columns
+     * @param columnSpans columns taken by each item
+     * @param rowSpans    rows taken by each item
+     * @param size        number of items
+     */
+    public void pack(int columnCount, int[] columnSpans, int[] rowSpans, int size) {
+        this.columnCount = Math.max(columnCount, 1);
+        this.size = size;
+
+        if (this.columnSpans.length < size) {
+            int capacity = Math.max(size, this.columnSpans.length * 2);
+            this.columnSpans = new int[capacity];
+            this.rowSpans = new int[capacity];
+            this.rows = new int[capacity];
+            this.columns = new int[capacity];
+        }
+
+        maxRowSpan = 1;
+        for (int i = 0; i < size; i++) {
+            this.columnSpans[i] = Math.max(1, Math.min(columnSpans[i], this.columnCount));
+            this.rowSpans[i] = Math.max(1, rowSpans[i]);
+            maxRowSpan = Math.max(maxRowSpan, this.rowSpans[i]);
+        }
+
+        window = new boolean[maxRowSpan * this.columnCount];
+        packFrom(0, -1);
+    }
+
+
+    /**
+     * Move an item to a new position, shifting the items between both positions, and pack again
+     * the items that may have changed their cells
+     *
+     * @param from old position of the item
+     * @param to   new position of the item
+     * @return the last position whose cell may have changed
+     */
+    public int move(int from, int to) {
+        checkPosition(from);
+        checkPosition(to);
+
+        if (from == to) {
+            return from;
+        }
+
+        int columnSpan = columnSpans[from];
+        int rowSpan = rowSpans[from];
+
+        if (from < to) {
+            System.arraycopy(columnSpans, from + 1, columnSpans, from, to - from);
+            System.arraycopy(rowSpans, from + 1, rowSpans, from, to - from);
+        } else {
+            System.arraycopy(columnSpans, to, columnSpans, to + 1, from - to);
+            System.arraycopy(rowSpans, to, rowSpans, to + 1, from - to);
+        }
+
+        columnSpans[to] = columnSpan;
+        rowSpans[to] = rowSpan;
+
+        return packFrom(Math.min(from, to), Math.max(from, to));
+    }
+
+
+    /**
+     * Place the items from a position on. After the last changed position, the packing stops when
+     * enough consecutive items keep their cells for the rest to be the same as before.
+     *
+     * @param first       first position to place
+     * @param lastChanged last position whose span changed, or -1 for placing all the items
+     * @return the last position whose cell may have changed
+     */
+    private int packFrom(int first, int lastChanged) {
+        int cursor = 0;
+        if (first > 0) {
+            cursor = rows[first - 1] * columnCount + columns[first - 1] + columnSpans[first - 1];
+        }
+
+        // Cells taken by the items before the first one that reach the rows from the cursor on
+        Arrays.fill(window, false);
+        windowRow = cursor / columnCount;
+
+        for (int i = first - 1; i >= 0 && rows[i] > windowRow - maxRowSpan; i--) {
+            take(rows[i], columns[i], columnSpans[i], rowSpans[i]);
+        }
+
+        int stableRun = 0;
+        int stableNeeded = 2 * maxRowSpan * columnCount;
+
+        for (int i = first; i < size; i++) {
+            int oldRow = rows[i];
+            int oldColumn = columns[i];
+
+            cursor = place(i, cursor);
+
+            if (lastChanged == -1 || i <= lastChanged) {
+                continue;
+            }
+
+            if (rows[i] == oldRow && columns[i] == oldColumn) {
+                stableRun++;
+                if (stableRun >= stableNeeded) {
+                    updateRowCount();
+                    return i - stableRun;
+                }
+            } else {
+                stableRun = 0;
+            }
+        }
+
+        updateRowCount();
+        return size - 1;
+    }
+
+
+    /**
+     * Place an item in the first cell from the cursor where it fits
+     *
+     * @param position position of the item
+     * @param cursor   first cell where it can be placed
+     * @return the cursor for the next item
+     */
+    private int place(int position, int cursor) {
+        int columnSpan = columnSpans[position];
+        int rowSpan = rowSpans[position];
+        int row = cursor / columnCount;
+        int column = cursor % columnCount;
+
+        while (true) {
+            if (column + columnSpan > columnCount) {
+                row++;
+                column = 0;
+                continue;
+            }
+
+            if (fits(row, column, columnSpan, rowSpan)) {
+                break;
+            }
+
+            column++;
+        }
+
+        advanceWindow(row);
+        take(row, column, columnSpan, rowSpan);
+
+        rows[position] = row;
+        columns[position] = column;
+
+        return row * columnCount + column + columnSpan;
+    }
+
+
+    private boolean fits(int row, int column, int columnSpan, int rowSpan) {
+        for (int r = row; r < row + rowSpan && r < windowRow + maxRowSpan; r++) {
+            int rowStart = (r % maxRowSpan) * columnCount;
+
+            for (int c = column; c < column + columnSpan; c++) {
+                if (r >= windowRow && window[rowStart + c]) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+
+    private void take(int row, int column, int columnSpan, int rowSpan) {
+        for (int r = Math.max(row, windowRow); r < row + rowSpan && r < windowRow + maxRowSpan; r++) {
+            int rowStart = (r % maxRowSpan) * columnCount;
+            Arrays.fill(window, rowStart + column, rowStart + column + columnSpan, true);
+        }
+    }
+
+
+    /**
+     * Move the window of taken cells down to the given row, forgetting the rows above it
+     */
+    private void advanceWindow(int row) {
+        if (row == windowRow) {
+            return;
+        }
+
+        int forgotten = Math.min(row - windowRow, maxRowSpan);
+        for (int r = windowRow; r < windowRow + forgotten; r++) {
+            int rowStart = (r % maxRowSpan) * columnCount;
+            Arrays.fill(window, rowStart, rowStart + columnCount, false);
+        }
+
+        windowRow = row;
+    }
+
+
+    /**
+     * The bottom of the grid is reached by one of the items that start in the last rows
+     */
+    private void updateRowCount() {
+        rowCount = 0;
+
+        for (int i = size - 1; i >= 0 && rows[i] > rows[size - 1] - maxRowSpan; i--) {
+            rowCount = Math.max(rowCount, rows[i] + rowSpans[i]);
+        }
+    }
+
+
+    /**
+     * Gets the position of the item that covers a cell
+     *
+     * @param row    row of the cell, or -1
+     * @param column column of the cell, or -1
+     * @return the position of the item, or -1 if the cell is empty
+     */
+    public int getPositionAt(int row, int column) {
+        if (row < 0 || column < 0 || column >= columnCount) {
+            return -1;
+        }
+
+        int last = getLastPositionBeforeRow(row + 1);
+
+        for (int i = last; i >= 0 && rows[i] > row - maxRowSpan; i--) {
+            if (row < rows[i] + rowSpans[i] && column >= columns[i] && column < columns[i] + columnSpans[i]) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Gets the first item that starts in the given row or after it
+     *
+     * @param row the row
+     * @return the position of the item, or the number of items if there isn't any
+     */
+    public int getFirstPositionFromRow(int row) {
+        int low = 0;
+        int high = size;
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (rows[middle] < row) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+
+    /**
+     * Gets the last item that starts before the given row
+     *
+     * @param row the row
+     * @return the position of the item, or -1 if there isn't any
+     */
+    public int getLastPositionBeforeRow(int row) {
+        return getFirstPositionFromRow(row) - 1;
+    }
+
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of " + size + " items");
+        }
+    }
+
+
+    public int getRow(int position) {
+        checkPosition(position);
+        return rows[position];
+    }
+
+
+    public int getColumn(int position) {
+        checkPosition(position);
+        return columns[position];
+    }
+
+
+    public int getColumnSpan(int position) {
+        checkPosition(position);
+        return columnSpans[position];
+    }
+
+
+    public int getRowSpan(int position) {
+        checkPosition(position);
+        return rowSpans[position];
+    }
+
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+
+    public int getMaxRowSpan() {
+        return maxRowSpan;
+    }
+
+
+    public int size() {
+        return size;
+    }
+}
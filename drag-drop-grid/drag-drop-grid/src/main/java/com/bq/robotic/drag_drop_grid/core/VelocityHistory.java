@@ -0,0 +1,108 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+/**
+ * Recent positions of the finger, used for computing the velocity at which the grid is flung.
+ * The velocity is the slope of a least squares line over the samples of the last
+ * {@link #HORIZON} milliseconds, so it doesn't depend on how often the touch events arrive.
+ */
+public class VelocityHistory {
+
+    public static final int HORIZON = 100;
+    public static final int MAX_PAUSE = 40;
+
+    private static final int CAPACITY = 20;
+
+    private final long[] times = new long[CAPACITY];
+    private final float[] positions = new float[CAPACITY];
+    private int size = 0, newest = -1;
+
+
+    /**
+     * Forget all the samples, at the beginning of a new gesture
+     */
+    public void clear() {
+        size = 0;
+        newest = -1;
+    }
+
+
+    /**
+     * Add a sample of the position of the finger
+     *
+     * @param timeMillis time of the sample, in milliseconds
+     * @param position   the position, in pixels
+     */
+    public void add(long timeMillis, float position) {
+        newest = (newest + 1) % CAPACITY;
+        times[newest] = timeMillis;
+        positions[newest] = position;
+        size = Math.min(size + 1, CAPACITY);
+    }
+
+
+    /**
+     * Get the velocity of the finger at the time of the newest sample. It is 0 if there aren't
+     * at least two samples or if the finger was stopped for more than {@link #MAX_PAUSE}
+     * milliseconds before the newest one.
+     *
+     * @return the velocity, in pixels per second
+     */
+    public float getVelocity() {
+        if (size < 2) {
+            return 0;
+        }
+
+        long newestTime = times[newest];
+        int previous = (newest - 1 + CAPACITY) % CAPACITY;
+        if (newestTime - times[previous] > MAX_PAUSE) {
+            return 0;
+        }
+
+        // Least squares over the samples in the horizon, relative to the newest one
+        float sumT = 0, sumP = 0, sumTT = 0, sumTP = 0;
+        int count = 0;
+
+        for (int i = 0; i < size; i++) {
+            int index = (newest - i + CAPACITY) % CAPACITY;
+            float t = times[index] - newestTime;
+            if (t < -HORIZON) {
+                break;
+            }
+
+            float p = positions[index] - positions[newest];
+            sumT += t;
+            sumP += p;
+            sumTT += t * t;
+            sumTP += t * p;
+            count++;
+        }
+
+        float denominator = count * sumTT - sumT * sumT;
+        if (count < 2 || denominator == 0) {
+            return 0;
+        }
+
+        return (count * sumTP - sumT * sumP) / denominator * 1000;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+package com.bq.robotic.drag_drop_grid.core;
+
+/**
+ * Shared clock for the wobble of the children while dragging. It gives the same rotation as the
+ * old infinite RotateAnimation of each child: from -amplitude to amplitude degrees and back, with
+ * an accelerate-decelerate curve, but computed once per frame for all the children.
+ */
+public class WobbleClock {
+
+    public static final float DEFAULT_AMPLITUDE = 3.0f;
+    public static final long DEFAULT_HALF_PERIOD = 60;
+
+    private final float amplitude;
+    private final long halfPeriod;
+
+
+    public WobbleClock() {
+        this(DEFAULT_AMPLITUDE, DEFAULT_HALF_PERIOD);
+    }
+
+
+    /**
+     * @param amplitude  maximum rotation in degrees, to each side
+     * @param halfPeriod milliseconds for going from one side to the other
+     */
+    public WobbleClock(float amplitude, long halfPeriod) {
+        if (halfPeriod <= 0) {
+            throw new IllegalArgumentException("The half period must be positive: " + halfPeriod);
+        }
+
+        this.amplitude = amplitude;
+        this.halfPeriod = halfPeriod;
+    }
+
+
+    /**
+     * Get the rotation at a given time
+     *
+     * @param timeMillis the time, in milliseconds
+     * @return the rotation in degrees
+     */
+    public float getAngle(long timeMillis) {
+        long phase = timeMillis % (2 * halfPeriod);
+        boolean goingBack = phase >= halfPeriod;
+
+        float fraction = (goingBack ? phase - halfPeriod : phase) / (float) halfPeriod;
+        float eased = (float) (Math.cos((fraction + 1) * Math.PI) / 2.0) + 0.5f;
+
+        if (goingBack) {
+            return amplitude - 2 * amplitude * eased;
+        }
+
+        return -amplitude + 2 * amplitude * eased;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Auto-scroll stepped with synthetic frames, as the scroll driver steps it
+ */
+public class EdgeAutoScrollerTest {
+
+    private static final float LENGTH = 1000;
+
+    private EdgeAutoScroller scroller;
+
+
+    @Before
+    public void setUp() {
+        scroller = new EdgeAutoScroller();
+        scroller.setEdgeSize(100);
+        scroller.setMaxVelocity(2000);
+        scroller.setRampTime(500);
+    }
+
+
+    /**
+     * Step the scroller with the finger still for some time
+     *
+     * @return pixels scrolled in all the frames
+     */
+    private int scroll(float position, float millis, float frameMillis) {
+        int total = 0;
+        for (int frame = Math.round(millis / frameMillis); frame > 0; frame--) {
+            total += scroller.step(position, LENGTH, frameMillis);
+        }
+
+        return total;
+    }
+
+
+    @Test
+    public void noVelocityOutOfTheEdges() {
+        assertEquals(0, scroller.getVelocity(100, LENGTH), 0);
+        assertEquals(0, scroller.getVelocity(500, LENGTH), 0);
+        assertEquals(0, scroller.getVelocity(900, LENGTH), 0);
+        assertEquals(0, scroll(500, 1000, 16));
+    }
+
+
+    @Test
+    public void velocityGrowsWithTheDepthInTheEdge() {
+        assertEquals(-2000, scroller.getVelocity(0, LENGTH), 0.01);
+        assertEquals(-500, scroller.getVelocity(50, LENGTH), 0.01);
+        assertEquals(500, scroller.getVelocity(950, LENGTH), 0.01);
+        assertEquals(2000, scroller.getVelocity(1000, LENGTH), 0.01);
+
+        // Out of the grid it doesn't go faster
+        assertEquals(-2000, scroller.getVelocity(-300, LENGTH), 0.01);
+        assertEquals(2000, scroller.getVelocity(1300, LENGTH), 0.01);
+    }
+
+
+    @Test
+    public void edgesSplitASmallGrid() {
+        assertEquals(-2000, scroller.getVelocity(0, 100), 0.01);
+        assertEquals(0, scroller.getVelocity(50, 100), 0.01);
+        assertEquals(2000, scroller.getVelocity(100, 100), 0.01);
+    }
+
+
+    @Test
+    public void rampReachesFullSpeed() {
+        // Half the speed on average during the ramp, then the full speed
+        assertEquals(500, scroll(1000, 500, 10), 1);
+        assertEquals(2000, scroll(1000, 1000, 10), 1);
+    }
+
+
+    @Test
+    public void sameDistanceAtAnyFrameRate() {
+        int at60 = scroll(980, 2000, 1000 / 60f);
+
+        scroller.reset();
+        int at120 = scroll(980, 2000, 1000 / 120f);
+
+        scroller.reset();
+        int at30 = scroll(980, 2000, 1000 / 30f);
+
+        assertTrue(at60 + " at 60, " + at120 + " at 120", Math.abs(at60 - at120) <= 1);
+        assertTrue(at60 + " at 60, " + at30 + " at 30", Math.abs(at60 - at30) <= 1);
+    }
+
+
+    @Test
+    public void slowSpeedsStillScroll() {
+        // 0.02 pixels per frame, the fractions are carried to the next frames
+        scroller.setRampTime(0);
+        scroller.setMaxVelocity(1);
+        assertEquals(1, scroll(1000, 1010, 10));
+    }
+
+
+    @Test
+    public void rampStartsAgainInTheOtherEdge() {
+        scroll(1000, 1000, 10);
+        assertEquals(20, scroller.step(1000, LENGTH, 10));
+
+        // The first frame at the other edge goes at the start of the ramp
+        int first = scroller.step(0, LENGTH, 10);
+        assertTrue("first frame " + first, first <= 0 && first > -2);
+    }
+
+
+    @Test
+    public void rampStartsAgainAfterLeavingTheEdge() {
+        scroll(1000, 1000, 10);
+        assertEquals(0, scroller.step(500, LENGTH, 10));
+        assertEquals(500, scroll(1000, 500, 10), 1);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeEdgeIsRejected() {
+        scroller.setEdgeSize(-1);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Decay, spring and termination of the fling, stepped with synthetic frame times
+ */
+public class FlingScrollerTest {
+
+    private static final float FRAME = 1 / 60f;
+    private static final float MIN = 0;
+    private static final float MAX = 100000;
+
+    private FlingScroller scroller;
+
+
+    @Before
+    public void setUp() {
+        scroller = new FlingScroller();
+        scroller.setVelocityLimits(50, 8000);
+    }
+
+
+    /**
+     * Step frames until the fling ends
+     *
+     * @return the number of frames
+     */
+    private int runToEnd(float frame, float min, float max, int maxFrames) {
+        int frames = 0;
+
+        while (scroller.step(frame, min, max)) {
+            frames++;
+            if (frames > maxFrames) {
+                throw new AssertionError("The fling didn't end in " + maxFrames + " frames");
+            }
+        }
+
+        return frames;
+    }
+
+
+    @Test
+    public void decayFollowsTheExponential() {
+        scroller.fling(1000, 3000);
+
+        for (int i = 1; i <= 30; i++) {
+            scroller.step(FRAME, MIN, MAX);
+
+            double t = i * FRAME;
+            double factor = Math.exp(-FlingScroller.DEFAULT_DECAY * t);
+            assertEquals(3000 * factor, scroller.getVelocity(), 3000 * 1e-4);
+            assertEquals(1000 + 3000 * (1 - factor) / FlingScroller.DEFAULT_DECAY, scroller.getPosition(), .05);
+        }
+    }
+
+
+    @Test
+    public void decayDoesNotDependOnTheFrameRate() {
+        FlingScroller slow = new FlingScroller();
+        slow.fling(0, -2500);
+        scroller.fling(0, -2500);
+
+        // 30 fps against 120 fps, with the same total time
+        for (int i = 0; i < 20; i++) {
+            slow.step(1 / 30f, -MAX, MAX);
+            for (int j = 0; j < 4; j++) {
+                scroller.step(1 / 120f, -MAX, MAX);
+            }
+        }
+
+        assertEquals(slow.getPosition(), scroller.getPosition(), .05);
+        assertEquals(slow.getVelocity(), scroller.getVelocity(), .5);
+    }
+
+
+    @Test
+    public void flingEndsBelowTheStopVelocity() {
+        scroller.fling(0, 4000);
+        int frames = runToEnd(FRAME, MIN, MAX, 1000);
+
+        assertTrue(scroller.isFinished());
+        assertEquals(0, scroller.getVelocity(), 0);
+
+        // The decay from 4000 to 50 px/s takes ln(80) / decay seconds
+        double expectedSeconds = Math.log(4000 / 50.0) / FlingScroller.DEFAULT_DECAY;
+        assertEquals(expectedSeconds / FRAME, frames, 2);
+
+        // And it stopped short of the distance of a fling that never ends
+        float total = 4000 / FlingScroller.DEFAULT_DECAY;
+        assertTrue(scroller.getPosition() < total);
+        assertTrue(scroller.getPosition() > total - 50 / FlingScroller.DEFAULT_DECAY - 1);
+    }
+
+
+    @Test
+    public void flingStartsNoFasterThanTheMaximum() {
+        scroller.fling(0, 20000);
+        assertEquals(8000, scroller.getVelocity(), 0);
+
+        scroller.fling(0, -20000);
+        assertEquals(-8000, scroller.getVelocity(), 0);
+    }
+
+
+    @Test
+    public void finishedFlingDoesNotMove() {
+        scroller.fling(200, 1000);
+        scroller.abort();
+
+        assertTrue(scroller.isFinished());
+        assertFalse(scroller.step(FRAME, MIN, MAX));
+        assertEquals(200, scroller.getPosition(), 0);
+    }
+
+
+    @Test
+    public void springBringsBackAnOverscroll() {
+        // Flung up against the top limit
+        scroller.fling(100, -6000);
+        float lowest = Float.MAX_VALUE;
+        int frames = 0;
+
+        while (scroller.step(FRAME, MIN, 5000)) {
+            lowest = Math.min(lowest, scroller.getPosition());
+            assertTrue("The fling didn't end", ++frames < 600);
+        }
+
+        assertTrue("It went past the limit", lowest < MIN);
+        assertEquals(MIN, scroller.getPosition(), 0);
+        assertEquals(0, scroller.getVelocity(), 0);
+    }
+
+
+    @Test
+    public void criticallyDampedSpringDoesNotBounce() {
+        // Released out of the limits without velocity
+        scroller.fling(-300, 0);
+        float previous = scroller.getPosition();
+
+        while (scroller.step(FRAME, MIN, MAX)) {
+            assertTrue("It bounced", scroller.getPosition() >= previous);
+            assertTrue("It went past the limit", scroller.getPosition() <= MIN + .5f);
+            previous = scroller.getPosition();
+        }
+
+        assertEquals(MIN, scroller.getPosition(), 0);
+    }
+
+
+    @Test
+    public void longFramesEndTheSame() {
+        // A frame of a quarter of a second must not make the spring unstable
+        scroller.fling(-500, -1000);
+        runToEnd(.25f, MIN, MAX, 100);
+
+        assertEquals(MIN, scroller.getPosition(), 0);
+    }
+
+
+    @Test
+    public void snapDoesNotOvershootThePage() {
+        // A fast fling towards a page 300 px away
+        scroller.snap(0, 20000, 300);
+        assertTrue(scroller.getVelocity() < 20000);
+
+        while (scroller.step(FRAME, 300, 300)) {
+            assertTrue("It went past the page", scroller.getPosition() <= 300 + .5f);
+        }
+
+        assertEquals(300, scroller.getPosition(), 0);
+    }
+}
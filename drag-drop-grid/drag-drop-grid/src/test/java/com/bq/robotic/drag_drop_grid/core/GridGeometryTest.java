@@ -0,0 +1,178 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Drop targets found with the row computed once, against the targets found with the index of
+ * the cells at both sides of the finger, and insert positions from the nearest cell
+ */
+public class GridGeometryTest {
+
+    /**
+     * Target found with two full lookups of the index, each of them finding the row again
+     */
+    private static int targetFromIndexes(GridGeometry geometry, int x, int y, int dragged, int itemCount) {
+        if (geometry.getRowFromCoor(y) == -1) {
+            return -1;
+        }
+
+        int leftPos = geometry.getIndexFromCoor(x - (geometry.getCellWidth() / 4), y, itemCount);
+        int rightPos = geometry.getIndexFromCoor(x + (geometry.getCellWidth() / 4), y, itemCount);
+
+        if (leftPos == rightPos) {
+            return -1;
+        }
+
+        int target = (rightPos > -1) ? rightPos : leftPos + 1;
+        return (dragged < target) ? target - 1 : target;
+    }
+
+
+    private static void assertSameTargets(GridGeometry geometry, int width, int height, int itemCount) {
+        for (int dragged = 0; dragged < itemCount; dragged += 3) {
+            for (int y = -10; y < height; y += 3) {
+                for (int x = -10; x < width; x += 2) {
+                    int expected = targetFromIndexes(geometry, x, y, dragged, itemCount);
+                    int actual = geometry.getTargetFromCoor(x, y, dragged, itemCount);
+
+                    if (actual != expected) {
+                        assertEquals("x " + x + ", y " + y + ", dragged " + dragged, expected, actual);
+                    }
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void targetsInScrollingGrid() {
+        GridGeometry geometry = new GridGeometry();
+
+        for (int itemCount = 1; itemCount <= 23; itemCount += 11) {
+            geometry.update(1080, 16, 16, 16, 200, 180, 5, false);
+            assertSameTargets(geometry, 1080, 5 * 180, itemCount);
+
+            geometry.update(1080, 16, 16, 16, 250, 250, 4, true);
+            assertSameTargets(geometry, 1080, 3 * 250, itemCount);
+        }
+    }
+
+
+    @Test
+    public void targetsInPagedGrid() {
+        GridGeometry geometry = new GridGeometry();
+        geometry.update(720, 0, 24, 0, 180, 200, 4, true);
+        geometry.updatePaging(3, 720);
+
+        for (int itemCount = 1; itemCount <= 30; itemCount += 7) {
+            assertSameTargets(geometry, 3 * 720, 3 * 200 + 60, itemCount);
+        }
+    }
+
+
+    /**
+     * The insert position is the item under the point when there is one, it is never out of the
+     * items, and it doesn't jump while the point crosses the padding or a border
+     */
+    private static void assertNearestIndexes(GridGeometry geometry, int width, int height, int itemCount,
+                                             boolean paged) {
+        int columnsRight = geometry.getOriginX() + geometry.getColumnCount() * geometry.getCellWidth();
+
+        for (int y = -40; y < height + 40; y += 3) {
+            int previous = -1;
+
+            for (int x = -40; x < width + 40; x++) {
+                int nearest = geometry.getNearestIndexFromCoor(x, y, itemCount);
+                if (nearest < 0 || nearest > itemCount) {
+                    assertEquals("x " + x + ", y " + y + " out of the items", itemCount, nearest);
+                }
+
+                int index = geometry.getIndexFromCoor(x, y, itemCount);
+                if (index != -1 && (paged || x < columnsRight) && nearest != index) {
+                    assertEquals("x " + x + ", y " + y, index, nearest);
+                }
+
+                // Along a row it only moves to the next cell, or to the next page in paged mode
+                if (!paged && previous != -1 && nearest != previous && nearest != previous + 1) {
+                    assertEquals("x " + x + ", y " + y + " jumped", previous + 1, nearest);
+                }
+                previous = nearest;
+            }
+        }
+    }
+
+
+    @Test
+    public void nearestIndexesInScrollingGrid() {
+        GridGeometry geometry = new GridGeometry();
+
+        for (int itemCount = 0; itemCount <= 23; itemCount++) {
+            geometry.update(1080, 16, 16, 16, 200, 180, 5, false);
+            assertNearestIndexes(geometry, 1080, 5 * 180, itemCount, false);
+
+            geometry.update(1080, 16, 16, 16, 250, 250, 4, true);
+            assertNearestIndexes(geometry, 1080, 3 * 250, itemCount, false);
+        }
+
+        // Below the last row it is the cell of the last row in that column, or after the last item
+        geometry.update(1000, 0, 0, 0, 200, 200, 5, false);
+        assertEquals(5, geometry.getNearestIndexFromCoor(10, 5000, 7));
+        assertEquals(7, geometry.getNearestIndexFromCoor(990, 5000, 7));
+        assertEquals(0, geometry.getNearestIndexFromCoor(-50, -50, 7));
+    }
+
+
+    @Test
+    public void nearestIndexesInPagedGrid() {
+        GridGeometry geometry = new GridGeometry();
+        geometry.update(720, 0, 24, 0, 180, 200, 4, true);
+        geometry.updatePaging(3, 720);
+
+        for (int itemCount = 0; itemCount <= 30; itemCount += 7) {
+            assertNearestIndexes(geometry, 3 * 720, 3 * 200 + 60, itemCount, true);
+        }
+
+        // Past the last page it is the cell after the last item
+        assertEquals(14, geometry.getNearestIndexFromCoor(5000, 30, 14));
+        // Below the rows of the second page it is its last row
+        assertEquals(20, geometry.getNearestIndexFromCoor(720 + 10, 5000, 30));
+    }
+
+
+    @Test
+    public void pagedGridBeforeTheFirstMeasure() {
+        // The paging is set before there are columns
+        GridGeometry geometry = new GridGeometry();
+        geometry.update(720, 0, 24, 0, 180, 200, 0, true);
+        geometry.updatePaging(3, 720);
+
+        assertEquals(0, geometry.getPage(5));
+        assertEquals(24, geometry.getTop(5));
+        assertEquals(geometry.getOriginX(), geometry.getLeft(5));
+        assertEquals(5, geometry.getNearestIndexFromCoor(100, 100, 5));
+    }
+}
@@ -0,0 +1,268 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The closed forms of GridMath against the loops they replaced, which walked the cells one by
+ * one. The loops are kept here as the reference.
+ */
+public class GridMathTest {
+
+    private static final int[] PADDINGS = {0, 1, 8, 16, 33};
+
+
+    /**
+     * Old getColFromCoor and getRowFromCoor, once the padding and the centering are subtracted
+     */
+    private static int cellFromOffsetLoop(int coor, int cellSize) {
+        for (int i = 0; coor > 0; i++) {
+            if (coor < cellSize) {
+                return i;
+            }
+
+            coor -= cellSize;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Old column count of onLayout
+     */
+    private static int columnCountLoop(float width, int paddingLeft, int paddingRight, int cellWidth,
+                                       int itemCount, int fixedColumns) {
+        int columnCount = 0;
+        float widthAux = width - (paddingRight + paddingLeft);
+
+        for (int i = 0; i < itemCount; i++) {
+            if (widthAux < cellWidth) {
+                break;
+            }
+
+            columnCount++;
+            widthAux -= cellWidth;
+        }
+
+        if (fixedColumns > 0 && fixedColumns < columnCount) {
+            columnCount = fixedColumns;
+        }
+
+        return columnCount;
+    }
+
+
+    /**
+     * Old getColFromCoor, with the padding and the centering computed inline
+     */
+    private static int colFromCoorLoop(int coor, float width, int paddingLeft, int paddingRight,
+                                       int cellWidth, int columnCount, boolean center) {
+        coor -= paddingLeft;
+
+        int widthForHorizontalCentering = 0;
+        float emptySpaceInGrid = width - paddingLeft - paddingRight - (cellWidth * columnCount);
+        if (center || emptySpaceInGrid < cellWidth) {
+            widthForHorizontalCentering = Math.round(emptySpaceInGrid / 2);
+        }
+
+        return cellFromOffsetLoop(coor - widthForHorizontalCentering, cellWidth);
+    }
+
+
+    @Test
+    public void cellFromOffsetMatchesTheLoop() {
+        // With a zero cell size the loop never ended, so it isn't compared
+        for (int cellSize = 1; cellSize <= 64; cellSize++) {
+            for (int offset = -300; offset <= 3000; offset++) {
+                int expected = cellFromOffsetLoop(offset, cellSize);
+                int actual = GridMath.cellFromOffset(offset, cellSize);
+
+                if (actual != expected) {
+                    assertEquals("offset " + offset + ", cell " + cellSize, expected, actual);
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void cellFromOffsetWithoutCellSize() {
+        assertEquals(-1, GridMath.cellFromOffset(10, 0));
+        assertEquals(-1, GridMath.cellFromOffset(0, 0));
+    }
+
+
+    @Test
+    public void nearestCellFromOffsetIsTheCellOrTheClosestEnd() {
+        for (int cellSize = 1; cellSize <= 64; cellSize++) {
+            for (int offset = -300; offset <= 3000; offset++) {
+                int cell = GridMath.cellFromOffset(offset, cellSize);
+                int nearest = GridMath.nearestCellFromOffset(offset, cellSize, 10);
+
+                int expected;
+                if (offset < 0) {
+                    expected = 0;
+                } else if (offset >= 10 * cellSize) {
+                    expected = 9;
+                } else {
+                    // Inside a cell or on the border where the next one starts
+                    expected = (cell == -1) ? offset / cellSize : cell;
+                }
+
+                if (nearest != expected) {
+                    assertEquals("offset " + offset + ", cell " + cellSize, expected, nearest);
+                }
+            }
+        }
+
+        assertEquals(-1, GridMath.nearestCellFromOffset(10, 0, 5));
+        assertEquals(-1, GridMath.nearestCellFromOffset(10, 20, 0));
+    }
+
+
+    @Test
+    public void columnCountMatchesTheLoop() {
+        for (int width = 0; width <= 1200; width += 7) {
+            for (int paddingLeft : PADDINGS) {
+                for (int paddingRight : PADDINGS) {
+                    for (int cellWidth = 0; cellWidth <= 300; cellWidth += 13) {
+                        for (int itemCount = 0; itemCount <= 12; itemCount++) {
+                            for (int fixedColumns = 0; fixedColumns <= 6; fixedColumns++) {
+                                // Widths with a fraction of pixel too, as the width is a float
+                                float[] widths = {width, width + .5f};
+
+                                for (float w : widths) {
+                                    int expected = columnCountLoop(w, paddingLeft, paddingRight, cellWidth, itemCount, fixedColumns);
+                                    int actual = GridMath.columnCount(w, paddingLeft, paddingRight, cellWidth, itemCount, fixedColumns);
+
+                                    if (actual != expected) {
+                                        assertEquals("width " + w + ", paddings " + paddingLeft + "/" + paddingRight
+                                                + ", cell " + cellWidth + ", items " + itemCount
+                                                + ", fixed " + fixedColumns, expected, actual);
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void columnFromCoorMatchesTheLoop() {
+        for (int width = 100; width <= 1100; width += 50) {
+            for (int paddingLeft : PADDINGS) {
+                for (int paddingRight : PADDINGS) {
+                    for (int cellWidth = 20; cellWidth <= 260; cellWidth += 30) {
+                        int columnCount = GridMath.columnCount(width, paddingLeft, paddingRight, cellWidth, 100, 0);
+
+                        for (int c = 0; c < 2; c++) {
+                            boolean center = c == 1;
+                            int margin = GridMath.centeringOffset(width, paddingLeft, paddingRight,
+                                    cellWidth, columnCount, center);
+
+                            for (int x = -20; x <= width + 20; x++) {
+                                int expected = colFromCoorLoop(x, width, paddingLeft, paddingRight, cellWidth, columnCount, center);
+                                int actual = GridMath.cellFromOffset(x - paddingLeft - margin, cellWidth);
+
+                                if (actual != expected) {
+                                    assertEquals("x " + x + ", width " + width + ", paddings " + paddingLeft + "/"
+                                            + paddingRight + ", cell " + cellWidth + ", centered " + center, expected, actual);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void rowFromCoorMatchesTheLoop() {
+        for (int paddingTop : PADDINGS) {
+            for (int cellHeight = 1; cellHeight <= 200; cellHeight += 9) {
+                for (int scroll = -50; scroll <= 2000; scroll += 37) {
+                    for (int y = -20; y <= 800; y++) {
+                        int expected = cellFromOffsetLoop(y + scroll - paddingTop, cellHeight);
+                        int actual = GridMath.cellFromOffset(y + scroll - paddingTop, cellHeight);
+
+                        if (actual != expected) {
+                            assertEquals("y " + y + ", scroll " + scroll + ", padding " + paddingTop
+                                    + ", cell " + cellHeight, expected, actual);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void centeringOffsetMatchesTheInlineCode() {
+        for (int width = 0; width <= 1200; width += 11) {
+            for (int paddingLeft : PADDINGS) {
+                for (int paddingRight : PADDINGS) {
+                    for (int cellWidth = 1; cellWidth <= 300; cellWidth += 17) {
+                        for (int columnCount = 0; columnCount <= 8; columnCount++) {
+                            for (int c = 0; c < 2; c++) {
+                                boolean center = c == 1;
+
+                                int expected = 0;
+                                float emptySpaceInGrid = (float) width - paddingLeft - paddingRight - (cellWidth * columnCount);
+                                if (center || emptySpaceInGrid < cellWidth) {
+                                    expected = Math.round(emptySpaceInGrid / 2);
+                                }
+
+                                assertEquals(expected, GridMath.centeringOffset(width, paddingLeft, paddingRight,
+                                        cellWidth, columnCount, center));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void indexFromCellMatchesTheOldCode() {
+        for (int columnCount = 1; columnCount <= 6; columnCount++) {
+            for (int itemCount = 0; itemCount <= 40; itemCount++) {
+                for (int row = -1; row <= 10; row++) {
+                    for (int col = -1; col < columnCount; col++) {
+                        int expected = (col == -1 || row == -1 || row * columnCount + col >= itemCount)
+                                ? -1 : row * columnCount + col;
+
+                        assertEquals(expected, GridMath.indexFromCell(row, col, columnCount, itemCount));
+                    }
+                }
+            }
+        }
+    }
+}
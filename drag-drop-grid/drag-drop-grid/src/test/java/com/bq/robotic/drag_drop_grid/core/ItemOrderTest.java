@@ -0,0 +1,178 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Orders packed and unpacked again, they must come back as they were
+ */
+public class ItemOrderTest {
+
+    private static ItemOrder identity(int size) {
+        ItemOrder order = new ItemOrder();
+        for (int i = 0; i < size; i++) {
+            order.add();
+        }
+
+        return order;
+    }
+
+
+    private static int[] childIndexes(ItemOrder order) {
+        int[] childIndexes = new int[order.size()];
+        for (int position = 0; position < order.size(); position++) {
+            childIndexes[position] = order.get(position);
+        }
+
+        return childIndexes;
+    }
+
+
+    /**
+     * Pack the order, unpack it in an identity order of the same size and check they are equal
+     */
+    private static byte[] assertRoundTrip(ItemOrder order) {
+        byte[] packed = order.pack();
+        assertEquals(order.size(), ItemOrder.packedSize(packed));
+
+        ItemOrder restored = identity(order.size());
+        assertTrue(restored.unpack(packed));
+        assertTrue(Arrays.equals(childIndexes(order), childIndexes(restored)));
+        return packed;
+    }
+
+
+    private static ItemOrder shuffled(int size, long seed) {
+        ItemOrder order = identity(size);
+        Random random = new Random(seed);
+        for (int i = 0; i < size; i++) {
+            order.move(random.nextInt(size), random.nextInt(size));
+        }
+
+        return order;
+    }
+
+
+    @Test
+    public void emptyOrder() {
+        assertEquals(1, assertRoundTrip(new ItemOrder()).length);
+    }
+
+
+    @Test
+    public void identityOrderIsOneRun() {
+        // The size, the jump and the length of the only run
+        assertEquals(3, assertRoundTrip(identity(100)).length);
+    }
+
+
+    @Test
+    public void fewMovesInABigOrder() {
+        ItemOrder order = identity(1000);
+        order.move(10, 900);
+        order.move(500, 3);
+        order.move(999, 0);
+        assertRoundTrip(order);
+    }
+
+
+    @Test
+    public void heavilyPermutedOrders() {
+        for (int seed = 0; seed < 50; seed++) {
+            assertRoundTrip(shuffled(1 + seed * 7, seed));
+        }
+    }
+
+
+    @Test
+    public void reversedOrder() {
+        ItemOrder order = identity(300);
+        for (int i = 0; i < 300; i++) {
+            order.move(299, i);
+        }
+
+        assertEquals(299, order.get(0));
+        assertRoundTrip(order);
+    }
+
+
+    @Test
+    public void tenThousandItemsFitInAFewBytes() {
+        ItemOrder order = identity(10000);
+        for (int i = 0; i < 100; i++) {
+            order.move((i * 7919) % 10000, (i * 104729) % 10000);
+        }
+
+        // Each move splits a run in three at most, each run is two varints of 3 bytes at most
+        byte[] packed = assertRoundTrip(order);
+        assertTrue(packed.length + " bytes", packed.length <= 3 + 300 * 6);
+
+        // Even shuffled completely it is smaller than an int for each item
+        packed = assertRoundTrip(shuffled(10000, 42));
+        assertTrue(packed.length + " bytes", packed.length < 10000 * 4);
+    }
+
+
+    @Test
+    public void otherNumberOfItemsIsRejected() {
+        byte[] packed = shuffled(20, 7).pack();
+
+        ItemOrder fewer = identity(19);
+        assertFalse(fewer.unpack(packed));
+        assertEquals(0, fewer.get(0));
+
+        ItemOrder more = identity(21);
+        assertFalse(more.unpack(packed));
+        assertEquals(0, more.get(0));
+    }
+
+
+    @Test
+    public void truncatedOrderIsRejected() {
+        byte[] packed = shuffled(50, 3).pack();
+
+        for (int length = 0; length < packed.length; length++) {
+            ItemOrder restored = identity(50);
+            assertFalse(restored.unpack(Arrays.copyOf(packed, length)));
+            assertTrue(Arrays.equals(childIndexes(identity(50)), childIndexes(restored)));
+        }
+
+        assertEquals(-1, ItemOrder.packedSize(new byte[0]));
+    }
+
+
+    @Test
+    public void repeatedChildIsRejected() {
+        // Two runs of the first two children
+        byte[] packed = {4, 0, 2, (byte) ((-2 << 1) ^ (-2 >> 31)), 2};
+        assertFalse(identity(4).unpack(packed));
+    }
+}
@@ -0,0 +1,218 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Differences applied as the grid applies them, removing, appending the inserted items and
+ * putting all of them in order, must turn the old list into the new one with the fewest moves
+ */
+public class ListDiffTest {
+
+    /**
+     * Apply a difference to the old list as DraggableGridView.applyDiff does with the children
+     */
+    private static long[] apply(ListDiff diff, long[] oldIds, long[] newIds) {
+        List<Long> list = new ArrayList<Long>();
+        for (long id : oldIds) {
+            list.add(id);
+        }
+
+        int[] removed = diff.getRemovedPositions();
+        for (int i = removed.length - 1; i >= 0; i--) {
+            list.remove(removed[i]);
+        }
+
+        for (int i = 0; i < newIds.length; i++) {
+            if (diff.getOldPosition(i) == -1) {
+                list.add(newIds[i]);
+            }
+        }
+
+        int[] sources = diff.getSources();
+        assertEquals(list.size(), sources.length);
+
+        long[] result = new long[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            result[i] = list.get(sources[i]);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Longest increasing run of the old positions of the kept items, the slow way
+     */
+    private static int longestKeptRun(ListDiff diff, int newSize) {
+        int[] lengths = new int[newSize];
+        int longest = 0;
+
+        for (int i = 0; i < newSize; i++) {
+            if (diff.getOldPosition(i) == -1) {
+                continue;
+            }
+
+            lengths[i] = 1;
+            for (int j = 0; j < i; j++) {
+                if (diff.getOldPosition(j) != -1 && diff.getOldPosition(j) < diff.getOldPosition(i)) {
+                    lengths[i] = Math.max(lengths[i], lengths[j] + 1);
+                }
+            }
+            longest = Math.max(longest, lengths[i]);
+        }
+
+        return longest;
+    }
+
+
+    private static void assertDiff(long[] oldIds, long[] newIds) {
+        ListDiff diff = new ListDiff(oldIds, newIds);
+        String message = Arrays.toString(oldIds) + " -> " + Arrays.toString(newIds);
+
+        assertTrue(message, Arrays.equals(newIds, apply(diff, oldIds, newIds)));
+
+        int kept = newIds.length - diff.getInsertedCount();
+        assertEquals(message, oldIds.length - diff.getRemovedCount(), kept);
+        assertEquals(message, kept - longestKeptRun(diff, newIds.length), diff.getMovedCount());
+
+        // The items that aren't moved keep their relative order
+        int previousOld = -1;
+        int moved = 0;
+        for (int i = 0; i < newIds.length; i++) {
+            int oldPosition = diff.getOldPosition(i);
+            if (oldPosition == -1) {
+                assertFalse(message, diff.isMoved(i));
+                continue;
+            }
+
+            assertEquals(message, i, diff.getNewPosition(oldPosition));
+            if (diff.isMoved(i)) {
+                moved++;
+            } else {
+                assertTrue(message, oldPosition > previousOld);
+                previousOld = oldPosition;
+            }
+        }
+        assertEquals(message, diff.getMovedCount(), moved);
+    }
+
+
+    private static long[] randomIds(Random random, int size, int range) {
+        long[] ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = random.nextInt(range);
+        }
+
+        return ids;
+    }
+
+
+    @Test
+    public void sameListIsEmpty() {
+        long[] ids = {4, 8, 15, 16, 23, 42};
+        ListDiff diff = new ListDiff(ids, ids.clone());
+
+        assertTrue(diff.isEmpty());
+        assertEquals(0, diff.getRemovedPositions().length);
+        assertDiff(ids, ids.clone());
+    }
+
+
+    @Test
+    public void emptyLists() {
+        assertTrue(new ListDiff(new long[0], new long[0]).isEmpty());
+        assertDiff(new long[0], new long[]{1, 2, 3});
+        assertDiff(new long[]{1, 2, 3}, new long[0]);
+    }
+
+
+    @Test
+    public void oneItemMovedToTheEnd() {
+        ListDiff diff = new ListDiff(new long[]{1, 2, 3, 4, 5}, new long[]{2, 3, 4, 5, 1});
+
+        assertEquals(1, diff.getMovedCount());
+        assertTrue(diff.isMoved(4));
+        assertFalse(diff.isMoved(0));
+    }
+
+
+    @Test
+    public void removalsAndInsertionsAloneDontMove() {
+        ListDiff diff = new ListDiff(new long[]{1, 2, 3, 4, 5}, new long[]{9, 1, 3, 8, 5, 7});
+
+        assertEquals(0, diff.getMovedCount());
+        assertEquals(3, diff.getInsertedCount());
+        assertTrue(Arrays.equals(new int[]{1, 3}, diff.getRemovedPositions()));
+    }
+
+
+    @Test
+    public void repeatedIdsOnlyMatchOnce() {
+        assertDiff(new long[]{1, 1, 2, 2}, new long[]{2, 1, 1, 1});
+    }
+
+
+    @Test
+    public void randomLists() {
+        Random random = new Random(11);
+
+        for (int i = 0; i < 500; i++) {
+            int range = 5 + random.nextInt(60);
+            assertDiff(randomIds(random, random.nextInt(40), range), randomIds(random, random.nextInt(40), range));
+        }
+    }
+
+
+    @Test
+    public void shuffledLists() {
+        Random random = new Random(5);
+
+        for (int i = 0; i < 200; i++) {
+            long[] oldIds = new long[1 + random.nextInt(60)];
+            for (int j = 0; j < oldIds.length; j++) {
+                oldIds[j] = j;
+            }
+
+            long[] newIds = oldIds.clone();
+            for (int j = newIds.length - 1; j > 0; j--) {
+                int k = random.nextInt(j + 1);
+                long swap = newIds[j];
+                newIds[j] = newIds[k];
+                newIds[k] = swap;
+            }
+
+            assertDiff(oldIds, newIds);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Biggest size kept as sizes are added and removed, against the biggest of all the sizes left
+ */
+public class SizeHistogramTest {
+
+    @Test
+    public void emptyHistogramIsZero() {
+        assertEquals(0, new SizeHistogram().max());
+    }
+
+
+    @Test
+    public void maxAfterRemovingTheMax() {
+        SizeHistogram histogram = new SizeHistogram();
+        histogram.add(100);
+        histogram.add(300);
+        histogram.add(200);
+        assertEquals(300, histogram.max());
+
+        histogram.remove(300);
+        assertEquals(200, histogram.max());
+
+        histogram.remove(200);
+        assertEquals(100, histogram.max());
+
+        histogram.remove(100);
+        assertEquals(0, histogram.max());
+    }
+
+
+    @Test
+    public void maxStaysWhileAnotherChildHasIt() {
+        SizeHistogram histogram = new SizeHistogram();
+        histogram.add(300);
+        histogram.add(300);
+        histogram.add(100);
+
+        histogram.remove(300);
+        assertEquals(300, histogram.max());
+
+        histogram.remove(300);
+        assertEquals(100, histogram.max());
+    }
+
+
+    @Test(expected = IllegalStateException.class)
+    public void removingAnUncountedSizeFails() {
+        SizeHistogram histogram = new SizeHistogram();
+        histogram.add(100);
+        histogram.remove(200);
+    }
+
+
+    @Test
+    public void clearForgetsAllTheSizes() {
+        SizeHistogram histogram = new SizeHistogram();
+        histogram.add(100);
+        histogram.clear();
+        assertEquals(0, histogram.max());
+
+        histogram.add(50);
+        assertEquals(50, histogram.max());
+    }
+
+
+    @Test
+    public void randomAddsAndRemoves() {
+        Random random = new Random(3);
+        SizeHistogram histogram = new SizeHistogram();
+        List<Integer> sizes = new ArrayList<Integer>();
+
+        for (int i = 0; i < 5000; i++) {
+            if (sizes.isEmpty() || random.nextInt(3) > 0) {
+                // Many distinct sizes, so the arrays grow
+                int size = random.nextInt(40) * 10;
+                histogram.add(size);
+                sizes.add(size);
+            } else {
+                // Often the biggest one, as when the biggest child is removed
+                int index = random.nextBoolean() ? sizes.indexOf(Collections.max(sizes))
+                        : random.nextInt(sizes.size());
+                histogram.remove(sizes.remove(index));
+            }
+
+            int expected = sizes.isEmpty() ? 0 : Collections.max(sizes);
+            if (histogram.max() != expected) {
+                assertEquals("step " + i, expected, histogram.max());
+            }
+        }
+    }
+}
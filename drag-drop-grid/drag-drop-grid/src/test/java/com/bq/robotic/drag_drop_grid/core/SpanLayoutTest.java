@@ -0,0 +1,206 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Moves packed again from the moved positions only, against the whole layout packed from scratch
+ */
+public class SpanLayoutTest {
+
+    private static void moveSpan(int[] spans, int from, int to) {
+        int span = spans[from];
+        if (from < to) {
+            System.arraycopy(spans, from + 1, spans, from, to - from);
+        } else {
+            System.arraycopy(spans, to, spans, to + 1, from - to);
+        }
+        spans[to] = span;
+    }
+
+
+    private static void assertSameLayout(String message, SpanLayout expected, SpanLayout actual) {
+        assertEquals(message + ", size", expected.size(), actual.size());
+        assertEquals(message + ", rows", expected.getRowCount(), actual.getRowCount());
+
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.getRow(i) != actual.getRow(i) || expected.getColumn(i) != actual.getColumn(i)) {
+                assertEquals(message + ", cell of " + i,
+                        expected.getRow(i) + "," + expected.getColumn(i),
+                        actual.getRow(i) + "," + actual.getColumn(i));
+            }
+        }
+    }
+
+
+    /**
+     * Every cell covered by an item is found by it, and the rest are empty
+     */
+    private static void assertPositionsAt(SpanLayout layout, int columnCount) {
+        int[][] cells = new int[layout.getRowCount() + 1][columnCount];
+        for (int[] row : cells) {
+            Arrays.fill(row, -1);
+        }
+
+        for (int i = 0; i < layout.size(); i++) {
+            for (int r = layout.getRow(i); r < layout.getRow(i) + layout.getRowSpan(i); r++) {
+                for (int c = layout.getColumn(i); c < layout.getColumn(i) + layout.getColumnSpan(i); c++) {
+                    assertEquals("overlap at " + r + "," + c, -1, cells[r][c]);
+                    cells[r][c] = i;
+                }
+            }
+        }
+
+        for (int r = 0; r < cells.length; r++) {
+            for (int c = 0; c < columnCount; c++) {
+                assertEquals("cell " + r + "," + c, cells[r][c], layout.getPositionAt(r, c));
+            }
+        }
+    }
+
+
+    private static void assertMovesMatchFullPack(int columnCount, int size, int maxSpan, long seed) {
+        Random random = new Random(seed);
+        int[] columnSpans = new int[size];
+        int[] rowSpans = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            // Mostly single cells, as in a real grid, with a few big items
+            boolean spanned = random.nextInt(4) == 0;
+            columnSpans[i] = spanned ? 1 + random.nextInt(maxSpan) : 1;
+            rowSpans[i] = spanned ? 1 + random.nextInt(maxSpan) : 1;
+        }
+
+        SpanLayout layout = new SpanLayout();
+        layout.pack(columnCount, columnSpans, rowSpans, size);
+
+        for (int move = 0; move < 60; move++) {
+            int from = random.nextInt(size);
+            int to = random.nextInt(size);
+            String message = "seed " + seed + ", move " + move + " from " + from + " to " + to;
+
+            int[] oldRows = new int[size];
+            int[] oldColumns = new int[size];
+            for (int i = 0; i < size; i++) {
+                oldRows[i] = layout.getRow(i);
+                oldColumns[i] = layout.getColumn(i);
+            }
+
+            int lastChanged = layout.move(from, to);
+            moveSpan(columnSpans, from, to);
+            moveSpan(rowSpans, from, to);
+
+            SpanLayout packed = new SpanLayout();
+            packed.pack(columnCount, columnSpans, rowSpans, size);
+            assertSameLayout(message, packed, layout);
+
+            // The items after the last changed position kept their cells
+            for (int i = lastChanged + 1; i < size; i++) {
+                if (layout.getRow(i) != oldRows[i] || layout.getColumn(i) != oldColumns[i]) {
+                    assertEquals(message + ", " + i + " moved after " + lastChanged,
+                            oldRows[i] + "," + oldColumns[i], layout.getRow(i) + "," + layout.getColumn(i));
+                }
+            }
+        }
+
+        assertPositionsAt(layout, columnCount);
+    }
+
+
+    @Test
+    public void singleCellsFillTheRows() {
+        int[] spans = {1, 1, 1, 1, 1, 1, 1};
+        SpanLayout layout = new SpanLayout();
+        layout.pack(3, spans, spans, 7);
+
+        assertEquals(3, layout.getRowCount());
+        assertEquals(2, layout.getRow(6));
+        assertEquals(0, layout.getColumn(6));
+        assertEquals(-1, layout.getPositionAt(2, 1));
+    }
+
+
+    @Test
+    public void itemsDontGoBackToTheHoles() {
+        // A wide item doesn't fit after the first one, and the next one isn't put in the hole
+        SpanLayout layout = new SpanLayout();
+        layout.pack(3, new int[]{2, 3, 1}, new int[]{1, 1, 1}, 3);
+
+        assertEquals(1, layout.getRow(1));
+        assertEquals(2, layout.getRow(2));
+        assertEquals(-1, layout.getPositionAt(0, 2));
+    }
+
+
+    @Test
+    public void spansAreClampedToTheColumns() {
+        SpanLayout layout = new SpanLayout();
+        layout.pack(2, new int[]{5, 0}, new int[]{1, 0}, 2);
+
+        assertEquals(2, layout.getColumnSpan(0));
+        assertEquals(1, layout.getColumnSpan(1));
+        assertEquals(1, layout.getRowSpan(1));
+        assertEquals(2, layout.getRowCount());
+    }
+
+
+    @Test
+    public void movesMatchFullPackWithSmallSpans() {
+        for (int seed = 0; seed < 40; seed++) {
+            assertMovesMatchFullPack(2 + seed % 5, 30 + seed * 3, 2, seed);
+        }
+    }
+
+
+    @Test
+    public void movesMatchFullPackWithBigSpans() {
+        for (int seed = 0; seed < 40; seed++) {
+            assertMovesMatchFullPack(3 + seed % 4, 20 + seed * 5, 4, seed);
+        }
+    }
+
+
+    @Test
+    public void movesAtTheEnds() {
+        int[] columnSpans = {2, 1, 1, 3, 1, 1, 2, 1};
+        int[] rowSpans = {2, 1, 1, 1, 2, 1, 1, 1};
+        SpanLayout layout = new SpanLayout();
+        layout.pack(3, columnSpans, rowSpans, 8);
+
+        assertEquals(7, layout.move(0, 7));
+        moveSpan(columnSpans, 0, 7);
+        moveSpan(rowSpans, 0, 7);
+
+        SpanLayout packed = new SpanLayout();
+        packed.pack(3, columnSpans, rowSpans, 8);
+        assertSameLayout("to the end", packed, layout);
+
+        assertEquals(3, layout.move(3, 3));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Velocity of the finger from synthetic timelines of touch events
+ */
+public class VelocityHistoryTest {
+
+    private VelocityHistory history;
+
+
+    @Before
+    public void setUp() {
+        history = new VelocityHistory();
+    }
+
+
+    /**
+     * Add samples of a finger moving at a constant velocity
+     *
+     * @return the time after the last sample
+     */
+    private long addUniformMotion(long startTime, float startPosition, float pixelsPerSecond,
+                                  int interval, int count) {
+        long time = startTime;
+
+        for (int i = 0; i < count; i++) {
+            history.add(time, startPosition + pixelsPerSecond * (time - startTime) / 1000f);
+            time += interval;
+        }
+
+        return time;
+    }
+
+
+    @Test
+    public void noVelocityWithoutTwoSamples() {
+        assertEquals(0, history.getVelocity(), 0);
+
+        history.add(1000, 50);
+        assertEquals(0, history.getVelocity(), 0);
+    }
+
+
+    @Test
+    public void uniformMotion() {
+        addUniformMotion(1000, 300, 2000, 8, 15);
+        assertEquals(2000, history.getVelocity(), 1);
+    }
+
+
+    @Test
+    public void uniformMotionUpwards() {
+        addUniformMotion(1000, 900, -1500, 16, 8);
+        assertEquals(-1500, history.getVelocity(), 1);
+    }
+
+
+    @Test
+    public void uniformMotionWithIrregularEvents() {
+        // The events arrive with jitter, but the finger moves at 1200 px/s
+        long[] times = {1000, 1004, 1017, 1021, 1036, 1040, 1049, 1066, 1070, 1083};
+
+        for (long time : times) {
+            history.add(time, 100 + 1.2f * (time - 1000));
+        }
+
+        assertEquals(1200, history.getVelocity(), 1);
+    }
+
+
+    @Test
+    public void onlyTheHorizonCounts() {
+        // Slow at first, then fast during more than the horizon
+        long time = addUniformMotion(1000, 0, 200, 10, 5);
+        addUniformMotion(time, 200 * (time - 1000) / 1000f, 3000, 10, VelocityHistory.HORIZON / 10 + 2);
+
+        assertEquals(3000, history.getVelocity(), 1);
+    }
+
+
+    @Test
+    public void fingerStoppedBeforeRelease() {
+        // A fast swipe, and then the finger rests before lifting it
+        long time = addUniformMotion(1000, 0, 2500, 8, 10);
+        history.add(time + VelocityHistory.MAX_PAUSE + 20, 2500 * (time - 8 - 1000) / 1000f);
+
+        assertEquals(0, history.getVelocity(), 0);
+    }
+
+
+    @Test
+    public void fingerHeldStillBeforeRelease() {
+        // The finger still sends events while it is held, so there is no pause between them
+        long time = addUniformMotion(1000, 0, 2500, 8, 10);
+        float position = 2500 * (time - 8 - 1000) / 1000f;
+
+        for (int i = 0; i < 20; i++) {
+            history.add(time, position);
+            time += 10;
+        }
+
+        assertEquals(0, history.getVelocity(), 1);
+    }
+
+
+    @Test
+    public void ringBufferWraparound() {
+        // Many more samples than the buffer keeps. The first ones, in the opposite direction,
+        // are overwritten, and the horizon would include some of them if they weren't.
+        long time = addUniformMotion(1000, 5000, -5000, 5, 33);
+        addUniformMotion(time, 0, 1000, 5, 20);
+
+        assertEquals(1000, history.getVelocity(), 1);
+
+        // And again, after wrapping around the buffer a few more times
+        for (int i = 0; i < 5; i++) {
+            time = addUniformMotion(time + 100 * 5, 0, 700, 5, 17);
+        }
+
+        assertEquals(700, history.getVelocity(), 1);
+    }
+
+
+    @Test
+    public void clearForgetsTheSamples() {
+        addUniformMotion(1000, 0, 2000, 8, 10);
+        history.clear();
+
+        assertEquals(0, history.getVelocity(), 0);
+
+        addUniformMotion(5000, 0, -800, 8, 10);
+        assertEquals(-800, history.getVelocity(), 1);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+* This file is part of the drag_drop_grid library
+*
+* Copyright (C) 2013 Mundo Reader S.L.
+*
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 2 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program. If not, see <http://www.gnu.org/licenses/>.
+*
+*/
+
+
+
+package com.bq.robotic.drag_drop_grid.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Rotation of the shared clock against the old RotateAnimation of each child: from -3 to 3
+ * degrees in 60 ms, accelerating and decelerating, repeated in reverse forever
+ */
+public class WobbleClockTest {
+
+    /**
+     * Rotation of the old animation, with the fraction of its repetition going back and forth
+     */
+    private static float animationAngle(long timeMillis) {
+        long repetition = timeMillis / 60;
+        float fraction = (timeMillis % 60) / 60f;
+        if (repetition % 2 == 1) {
+            fraction = 1 - fraction;
+        }
+
+        // AccelerateDecelerateInterpolator
+        float interpolated = (float) (Math.cos((fraction + 1) * Math.PI) / 2.0) + 0.5f;
+        return -3f + 6f * interpolated;
+    }
+
+
+    @Test
+    public void sameRotationAsTheOldAnimation() {
+        WobbleClock clock = new WobbleClock();
+
+        for (long time = 0; time < 5000; time++) {
+            assertEquals("time " + time, animationAngle(time), clock.getAngle(time), 1e-4f);
+        }
+    }
+
+
+    @Test
+    public void turnsAtBothSides() {
+        WobbleClock clock = new WobbleClock();
+
+        assertEquals(-3, clock.getAngle(0), 1e-4f);
+        assertEquals(0, clock.getAngle(30), 1e-4f);
+        assertEquals(3, clock.getAngle(60), 1e-4f);
+        assertEquals(0, clock.getAngle(90), 1e-4f);
+        assertEquals(-3, clock.getAngle(120), 1e-4f);
+    }
+
+
+    @Test
+    public void neverJumps() {
+        WobbleClock clock = new WobbleClock(5, 200);
+        float previous = clock.getAngle(0);
+
+        for (long time = 1; time < 2000; time++) {
+            float angle = clock.getAngle(time);
+            assertTrue("time " + time, Math.abs(angle) <= 5 + 1e-4f);
+            assertTrue("time " + time, Math.abs(angle - previous) < 0.1f);
+            previous = angle;
+        }
+    }
+
+
+    @Test
+    public void periodicAtBigFrameTimes() {
+        // Frame times in milliseconds since boot are big numbers
+        WobbleClock clock = new WobbleClock();
+        long uptime = 86400000L * 30;
+
+        assertEquals(clock.getAngle(uptime % 120), clock.getAngle(uptime), 1e-4f);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void halfPeriodMustBePositive() {
+        new WobbleClock(3, 0);
+    }
+}
@@ -32,6 +32,7 @@ import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
 import android.util.TypedValue;
 import android.view.View;
+import android.view.ViewGroup;
 import android.widget.AdapterView;
 import android.widget.ImageView;
 import android.widget.TextView;
@@ -186,7 +187,12 @@ public class GridLayout extends AppCompatActivity {
             case R.id.rhino_button:
 //                view.setImageResource(R.drawable.bot_rhino);
                 view.setImageBitmap(getThumb(getString(R.string.rhino)));
-                gridView.addView(view);
+
+                // The rhino is wider than the rest, so it takes two columns of the grid
+                DraggableGridView.LayoutParams params = new DraggableGridView.LayoutParams(
+                        ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+                params.columnSpan = 2;
+                gridView.addView(view, params);
                 imagesList.add(getString(R.string.rhino));
                 break;
 